@@ -0,0 +1,157 @@
+package benchmark;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessJson;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.GameCodec;
+import chess.InvalidMoveException;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the chess operations every move request passes through, on each
+ * position of the {@link Corpus}. The move generation benchmarks cover the
+ * whole side to move, which is what a client asking for every legal move
+ * costs the server.
+ * <p>
+ * ChessGame remembers the legal moves and status of its position. To time
+ * the move generator, {@link #validMoves} and {@link #isInCheckmate} first
+ * clear that memo by setting the side to move to itself, a single field
+ * write. Copying the game per call with an invocation-level setup would
+ * cost more than the work being timed. The {@code ...Cached} variants time
+ * repeated lookups in one position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessBenchmark {
+
+    @Param({Corpus.OPENING, Corpus.MIDDLEGAME, Corpus.ENDGAME, Corpus.CHECK})
+    public String position;
+
+    private final Gson gson = ChessJson.gson();
+    private ChessGame game;
+    private ChessBoard board;
+    private List<ChessPosition> ownPieces;
+    private ChessMove move;
+    private String json;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        game = Corpus.game(position);
+        board = game.getBoard();
+        ownPieces = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition pos = new ChessPosition(row, col);
+                ChessPiece piece = board.getPiece(pos);
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    ownPieces.add(pos);
+                }
+            }
+        }
+        move = ownPieces.stream()
+                .flatMap(pos -> game.validMoves(pos).stream())
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException(position + " has no legal move"));
+        json = gson.toJson(game);
+        encoded = GameCodec.encode(game);
+    }
+
+    @Benchmark
+    public void pieceMoves(Blackhole blackhole) {
+        for (ChessPosition pos : ownPieces) {
+            blackhole.consume(board.getPiece(pos).pieceMoves(board, pos));
+        }
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        game.setTeamTurn(game.getTeamTurn());
+        for (ChessPosition pos : ownPieces) {
+            blackhole.consume(game.validMoves(pos));
+        }
+    }
+
+    @Benchmark
+    public void validMovesCached(Blackhole blackhole) {
+        for (ChessPosition pos : ownPieces) {
+            blackhole.consume(game.validMoves(pos));
+        }
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        game.setTeamTurn(game.getTeamTurn());
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInCheckmateCached() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+
+    /**
+     * Makes and takes back the same move, so every invocation starts from
+     * the corpus position
+     */
+    @Benchmark
+    public long makeMove() throws InvalidMoveException {
+        game.makeMove(move);
+        long key = game.positionKey();
+        game.unmakeMove();
+        return key;
+    }
+
+    @Benchmark
+    public String toJson() {
+        return gson.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame fromJson() {
+        return gson.fromJson(json, ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame jsonRoundTrip() {
+        return gson.fromJson(gson.toJson(game), ChessGame.class);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return GameCodec.encode(game);
+    }
+
+    @Benchmark
+    public ChessGame decode() {
+        return GameCodec.decode(encoded);
+    }
+}
@@ -0,0 +1,40 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.Fen;
+
+import java.util.Map;
+
+/**
+ * Fixed positions the benchmarks run against. Changing a position makes
+ * old results incomparable with new ones, so add new entries instead.
+ */
+final class Corpus {
+
+    static final String OPENING = "opening";
+    static final String MIDDLEGAME = "middlegame";
+    static final String ENDGAME = "endgame";
+    static final String CHECK = "check";
+
+    private static final Map<String, String> POSITIONS = Map.of(
+            // Ruy Lopez after 1.e4 e5 2.Nf3 Nc6 3.Bb5
+            OPENING, "r1bqkbnr/pppp1ppp/2n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3",
+            // Italian game with both sides castled and all minor pieces out
+            MIDDLEGAME, "r2q1rk1/ppp2ppp/2npbn2/2b1p1B1/2B1P3/2NP1N2/PPP2PPP/R2Q1RK1 w - - 0 8",
+            // rook and pawns
+            ENDGAME, "8/5kp1/7p/4P3/1r6/6P1/5PKP/3R4 w - - 0 40",
+            // 1.e4 e5 2.Bc4 Nc6 3.Bxf7+, so checkmate detection has to search for an escape
+            CHECK, "r1bqkbnr/pppp1Bpp/2n5/4p3/4P3/8/PPPP1PPP/RNBQK1NR b KQkq - 0 3"
+    );
+
+    private Corpus() {
+    }
+
+    static ChessGame game(String name) {
+        String fen = POSITIONS.get(name);
+        if (fen == null) {
+            throw new IllegalArgumentException("Unknown corpus position: " + name);
+        }
+        return Fen.parse(fen);
+    }
+}
@@ -1,6 +1,7 @@
 package client;
 
 import chess.ChessGame;
+import chess.ChessJson;
 import chess.ChessMove;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
@@ -22,6 +23,7 @@ public class ServerFacade {
     private final String url;
     private String authToken;
     private WebSocket ws;
+    private final Gson gson = ChessJson.gson();
 
     public void setWebSocket(WebSocket ws) {
         this.ws = ws;
@@ -70,7 +72,7 @@ public class ServerFacade {
             HttpURLConnection http = connection(method, endpoint, body);
             try (var respBody = http.getInputStream();
                  var reader = new java.io.InputStreamReader(respBody)) {
-                result = new Gson().fromJson(reader, Map.class);
+                result = gson.fromJson(reader, Map.class);
             }
         } catch (IOException | URISyntaxException ex) {
             result = Map.of("Error", ex.getMessage());
@@ -85,7 +87,7 @@ public class ServerFacade {
                 "email", e
         );
 
-        String jsonBody = new Gson().toJson(body);
+        String jsonBody = gson.toJson(body);
         Map res = request("POST", "/user", jsonBody);
 
         if (res.containsKey("Error")) {
@@ -101,7 +103,7 @@ public class ServerFacade {
                 "password", p
         );
 
-        String jsonBody = new Gson().toJson(body);
+        String jsonBody = gson.toJson(body);
         Map res = request("POST", "/session", jsonBody);
 
         if (res.containsKey("Error")) {
@@ -123,7 +125,7 @@ public class ServerFacade {
 
     public int createGame(String gameName) {
         var body = Map.of("gameName", gameName);
-        var jsonBody = new Gson().toJson(body);
+        var jsonBody = gson.toJson(body);
         Map res = request("POST", "/game", jsonBody);
 
         if (res.containsKey("Error")) {
@@ -139,16 +141,16 @@ public class ServerFacade {
             return new HashSet<>();
         }
         Object gameObj = res.get("games");
-        String gamesJson = new Gson().toJson(gameObj);
+        String gamesJson = gson.toJson(gameObj);
 
-        return new Gson().fromJson(gamesJson, new TypeToken<Collection<GameData>>(){}.getType());
+        return gson.fromJson(gamesJson, new TypeToken<Collection<GameData>>(){}.getType());
     }
 
     public void connToWs (ChessGame.TeamColor color, int gameID) {
         try {
             ws = new WebSocket(color, authToken, gameID);
             UserGameCommand connect = new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken, gameID);
-            ws.sendMessage(new Gson().toJson(connect));
+            ws.sendMessage(gson.toJson(connect));
         } catch (Exception ex) {
             System.err.println("Failed to open ws: " + ex.getMessage());
         }
@@ -163,7 +165,7 @@ public class ServerFacade {
             body = Map.of("gameID", gameID);
         }
 
-        var jsonBody = new Gson().toJson(body);
+        var jsonBody = gson.toJson(body);
         var res = request("PUT", "/game", jsonBody);
 
         return !res.containsKey("Error");
@@ -172,16 +174,16 @@ public class ServerFacade {
     public void sendMakeMove(int gameID, String authToken, ChessMove move) throws IOException {
         UserGameCommand cmd = new UserGameCommand(UserGameCommand.CommandType.MAKE_MOVE, authToken, gameID);
         cmd.setMove(move);
-        ws.sendMessage(new Gson().toJson(cmd));
+        ws.sendMessage(gson.toJson(cmd));
     }
 
     public void sendResign(int gameID, String authToken) throws  IOException {
         UserGameCommand cmd = new UserGameCommand(UserGameCommand.CommandType.RESIGN, authToken, gameID);
-        ws.sendMessage(new Gson().toJson(cmd));
+        ws.sendMessage(gson.toJson(cmd));
     }
 
     public void sendLeaveGame(int gameID, String authToken) throws IOException {
         UserGameCommand cmd = new UserGameCommand(UserGameCommand.CommandType.LEAVE, authToken, gameID);
-        ws.sendMessage(new Gson().toJson(cmd));
+        ws.sendMessage(gson.toJson(cmd));
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 
 import chess.ChessGame;
+import chess.ChessJson;
 import com.google.gson.Gson;
 import ui.GamePlayUI;
 import websocket.commands.UserGameCommand;
@@ -18,6 +19,8 @@ public class WebSocket extends Endpoint{
 
     private final ChessGame.TeamColor color;
 
+    private final Gson gson = ChessJson.gson();
+
     public WebSocket(ChessGame.TeamColor color, String authToken, int gameID) throws Exception {
         this.color = color;
 
@@ -38,7 +41,7 @@ public class WebSocket extends Endpoint{
     }
 
     public void handleMessage(String message){
-        ServerMessage msg = new Gson().fromJson(message, ServerMessage.class);
+        ServerMessage msg = gson.fromJson(message, ServerMessage.class);
 
         if (msg.getServerMessageType().equals(ServerMessage.ServerMessageType.LOAD_GAME)) {
             GamePlayUI.boardLayout.updateBoard(msg.getGame().getBoard());
@@ -0,0 +1,198 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import model.AuthData;
+import model.GameData;
+import model.UserData;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DataAccess decorator that caches auth tokens, the most frequent lookup by
+ * far, in front of any other DataAccess. Every other call goes straight
+ * through.
+ * <p>
+ * Entries expire after a fixed time to live, so a token deleted behind this
+ * cache's back stops working within that time. Tokens deleted through
+ * {@link #deleteAuth} or {@link #clear} are dropped at once. Only tokens
+ * that exist are cached. When the cache is full, expired entries are
+ * dropped first and then arbitrary ones, down to 90% of the limit, so the
+ * scan is paid once per many inserts and lookups stay lock-free.
+ */
+public class CachingDataAccess implements DataAccess {
+
+    private static final int DEFAULT_MAX_TOKENS = 10_000;
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+    private static final double LOW_WATER = 0.9;
+
+    private record Cached(AuthData auth, long expiresAt) {}
+
+    private final DataAccess dao;
+    private final int maxTokens;
+    private final int lowWater;
+    private final long ttlNanos;
+    private final Map<String, Cached> tokens = new ConcurrentHashMap<>();
+    // bumped by every delete, so a lookup that raced one does not cache a dead token
+    private final AtomicLong deletes = new AtomicLong();
+
+    public CachingDataAccess(DataAccess dao, int maxTokens, Duration ttl) {
+        if (maxTokens < 1 || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Bad token cache settings: maxTokens=" + maxTokens + ", ttl=" + ttl);
+        }
+        this.dao = dao;
+        this.maxTokens = maxTokens;
+        this.lowWater = Math.min((int) (maxTokens * LOW_WATER), maxTokens - 1);
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public CachingDataAccess(DataAccess dao) {
+        this(dao, DEFAULT_MAX_TOKENS, DEFAULT_TTL);
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            return dao.getAuth(null);
+        }
+        long now = System.nanoTime();
+        Cached cached = tokens.get(authToken);
+        if (cached != null) {
+            if (now - cached.expiresAt() < 0) {
+                return cached.auth();
+            }
+            tokens.remove(authToken, cached);
+        }
+
+        long deletesBefore = deletes.get();
+        AuthData auth = dao.getAuth(authToken);
+        if (auth != null) {
+            cache(auth, now, deletesBefore);
+        }
+        return auth;
+    }
+
+    @Override
+    public void createAuth(AuthData auth) throws DataAccessException {
+        long deletesBefore = deletes.get();
+        dao.createAuth(auth);
+        cache(auth, System.nanoTime(), deletesBefore);
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        try {
+            dao.deleteAuth(authToken);
+        } finally {
+            deletes.incrementAndGet();
+            if (authToken != null) {
+                tokens.remove(authToken);
+            }
+        }
+    }
+
+    @Override
+    public void deleteAuths(Collection<String> authTokens) throws DataAccessException {
+        try {
+            dao.deleteAuths(authTokens);
+        } finally {
+            deletes.incrementAndGet();
+            for (String authToken : authTokens) {
+                tokens.remove(authToken);
+            }
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        try {
+            dao.clear();
+        } finally {
+            deletes.incrementAndGet();
+            tokens.clear();
+        }
+    }
+
+    /*
+     * compute and the deletes' remove lock the same key, so either the entry
+     * goes in first and the delete removes it, or the delete has already
+     * bumped the counter and the entry is never added
+     */
+    private void cache(AuthData auth, long now, long deletesBefore) {
+        if (tokens.size() >= maxTokens) {
+            evict(now);
+        }
+        Cached entry = new Cached(auth, now + ttlNanos);
+        tokens.compute(auth.authToken(), (token, old) -> deletes.get() == deletesBefore ? entry : old);
+    }
+
+    private void evict(long now) {
+        tokens.values().removeIf(cached -> now - cached.expiresAt() >= 0);
+        Iterator<String> keys = tokens.keySet().iterator();
+        while (tokens.size() > lowWater && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    @Override
+    public void createUser(UserData user) throws DataAccessException {
+        dao.createUser(user);
+    }
+
+    @Override
+    public UserData getUser(String username) throws DataAccessException {
+        return dao.getUser(username);
+    }
+
+    @Override
+    public void createGame(GameData game) throws DataAccessException {
+        dao.createGame(game);
+    }
+
+    @Override
+    public void createGames(List<GameData> games) throws DataAccessException {
+        dao.createGames(games);
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        return dao.getGame(gameID);
+    }
+
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        return dao.listGames();
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        dao.updateGame(game);
+    }
+
+    @Override
+    public void updateGames(List<GameData> games) throws DataAccessException {
+        dao.updateGames(games);
+    }
+
+    @Override
+    public void recordMove(int gameID, ChessMove move, ChessGame game) throws DataAccessException {
+        dao.recordMove(gameID, move, game);
+    }
+
+    @Override
+    public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+        return dao.getMoves(gameID);
+    }
+
+    @Override
+    public int nextGameID() throws DataAccessException {
+        return dao.nextGameID();
+    }
+}
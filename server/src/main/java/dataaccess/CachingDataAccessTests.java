@@ -0,0 +1,75 @@
+package dataaccess;
+
+import model.AuthData;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+
+public class CachingDataAccessTests {
+
+    private InMemoryDAO backing;
+    private CachingDataAccess dao;
+    private final AuthData auth = new AuthData("token123", "tester");
+
+    @BeforeEach
+    void setup() {
+        backing = new InMemoryDAO();
+        dao = new CachingDataAccess(backing, 2, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void servesCachedToken() throws DataAccessException {
+        backing.createAuth(auth);
+        assertEquals(auth, dao.getAuth(auth.authToken()));
+
+        // removed behind the cache's back: still served until it expires
+        backing.deleteAuth(auth.authToken());
+        assertEquals(auth, dao.getAuth(auth.authToken()));
+    }
+
+    @Test
+    void deleteAuthInvalidates() throws DataAccessException {
+        dao.createAuth(auth);
+        dao.deleteAuth(auth.authToken());
+        assertThrows(DataAccessException.class, () -> dao.getAuth(auth.authToken()));
+    }
+
+    @Test
+    void clearInvalidates() throws DataAccessException {
+        dao.createAuth(auth);
+        dao.clear();
+        assertThrows(DataAccessException.class, () -> dao.getAuth(auth.authToken()));
+    }
+
+    @Test
+    void expiredTokenIsReloaded() throws Exception {
+        dao = new CachingDataAccess(backing, 2, Duration.ofMillis(1));
+        dao.createAuth(auth);
+        backing.deleteAuth(auth.authToken());
+        Thread.sleep(5);
+        assertThrows(DataAccessException.class, () -> dao.getAuth(auth.authToken()));
+    }
+
+    @Test
+    void sizeIsBounded() throws DataAccessException {
+        for (int i = 0; i < 3; i++) {
+            dao.createAuth(new AuthData("token" + i, "tester"));
+        }
+        for (int i = 0; i < 3; i++) {
+            backing.deleteAuth("token" + i);
+        }
+
+        int served = 0;
+        for (int i = 0; i < 3; i++) {
+            try {
+                dao.getAuth("token" + i);
+                served++;
+            } catch (DataAccessException ex) {
+                // evicted, so the lookup reached the backing DAO
+            }
+        }
+        assertTrue(served <= 2, "At most two tokens should have been cached");
+    }
+}
@@ -0,0 +1,366 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of JDBC connections. Callers borrow a connection and close
+ * it as usual; closing hands it back to the pool instead of ending the
+ * session, so the TCP and MySQL handshakes are paid once per connection
+ * rather than once per query.
+ * <ul>
+ * <li>At most {@code maxSize} connections are open. A borrower waits up to
+ * {@code timeoutMillis} for one to be free, then gets an SQLException.</li>
+ * <li>A connection idle for longer than {@code validateAfterMillis} is
+ * checked with {@link Connection#isValid} before it is handed out, and
+ * replaced if the server dropped it.</li>
+ * <li>A background task closes connections idle for longer than
+ * {@code idleTimeoutMillis}, down to {@code minSize}, and opens new ones
+ * to keep {@code minSize} available.</li>
+ * <li>The same task reports connections borrowed for longer than
+ * {@code leakThresholdMillis}. A threshold of 0 turns leak detection off.
+ * With {@code leakStackTraces} the report includes the stack that borrowed
+ * the connection; that costs a stack walk on every borrow, so it is for
+ * hunting a leak rather than for everyday use.</li>
+ * </ul>
+ * Connections come back with auto-commit on; an open transaction is rolled
+ * back first.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    public record Settings(int minSize, int maxSize, long timeoutMillis, long idleTimeoutMillis,
+                           long validateAfterMillis, long leakThresholdMillis, boolean leakStackTraces) {
+        public Settings {
+            if (minSize < 0 || maxSize < 1 || minSize > maxSize || timeoutMillis < 0 || idleTimeoutMillis < 1
+                    || validateAfterMillis < 0 || leakThresholdMillis < 0) {
+                throw new IllegalArgumentException("Bad connection pool settings: " + this);
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the pool's counters
+     *
+     * @param total    open connections, idle or borrowed
+     * @param waiting  callers waiting for a connection right now
+     * @param borrows  connections handed out since the pool started
+     * @param created  connections opened since the pool started
+     * @param timeouts borrowers that gave up waiting
+     * @param leaks    borrows reported as possible leaks
+     */
+    public record Stats(int total, int idle, int active, int waiting, long borrows, long created,
+                        long timeouts, long leaks) {}
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_MILLIS = 5_000;
+
+    private final ConnectionFactory factory;
+    private final Settings settings;
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+
+    // guarded by this; most recently returned first
+    private final Deque<Pooled> idle = new ArrayDeque<>();
+    private final Set<Pooled> active = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+
+    public ConnectionPool(ConnectionFactory factory, Settings settings) {
+        this.factory = factory;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.maxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "connection-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.min(HOUSEKEEPING_MILLIS, settings.idleTimeoutMillis());
+        housekeeper.scheduleWithFixedDelay(this::housekeeping, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return a pooled connection; closing it returns it to the pool
+     * @throws SQLException if none is free within the timeout, or a new one
+     *                      cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        waiting.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(settings.timeoutMillis(), TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Timed out after " + settings.timeoutMillis()
+                        + " ms waiting for a database connection; " + stats());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a database connection", ex);
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        try {
+            Pooled pooled = take();
+            pooled.borrowedAt = System.nanoTime();
+            pooled.borrowedBy = settings.leakStackTraces() ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            active.add(pooled);
+            borrows.incrementAndGet();
+            return pooled.handOut();
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    public Stats stats() {
+        int idleCount;
+        synchronized (this) {
+            idleCount = idle.size();
+        }
+        int activeCount = active.size();
+        return new Stats(idleCount + activeCount, idleCount, activeCount, waiting.get(), borrows.get(),
+                created.get(), timeouts.get(), leaks.get());
+    }
+
+    /**
+     * Closes the idle connections; borrowed ones are closed as they come back
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        List<Pooled> toClose;
+        synchronized (this) {
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+        }
+        toClose.forEach(ConnectionPool::closeQuietly);
+    }
+
+    private Pooled take() throws SQLException {
+        while (true) {
+            Pooled pooled;
+            synchronized (this) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                return open();
+            }
+            long idleMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pooled.returnedAt);
+            if (idleMillis < settings.validateAfterMillis() || isValid(pooled)) {
+                return pooled;
+            }
+            closeQuietly(pooled);
+        }
+    }
+
+    private Pooled open() throws SQLException {
+        Pooled pooled = new Pooled(factory.open());
+        created.incrementAndGet();
+        return pooled;
+    }
+
+    private void giveBack(Pooled pooled) {
+        active.remove(pooled);
+        try {
+            boolean reusable = !closed && !pooled.connection.isClosed();
+            if (reusable && !pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            if (reusable) {
+                pooled.returnedAt = System.nanoTime();
+                synchronized (this) {
+                    idle.addFirst(pooled);
+                }
+            } else {
+                closeQuietly(pooled);
+            }
+        } catch (SQLException ex) {
+            // a connection that cannot be reset is not worth keeping
+            closeQuietly(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void housekeeping() {
+        try {
+            long now = System.nanoTime();
+            evictIdle(now);
+            fillToMinimum();
+            reportLeaks(now);
+        } catch (RuntimeException ex) {
+            System.err.println("Connection pool housekeeping failed: " + ex.getMessage());
+        }
+    }
+
+    private void evictIdle(long now) {
+        List<Pooled> expired = new ArrayList<>();
+        synchronized (this) {
+            // oldest at the tail, since returns go to the head
+            while (idle.size() + active.size() > settings.minSize() && !idle.isEmpty()
+                    && TimeUnit.NANOSECONDS.toMillis(now - idle.peekLast().returnedAt) > settings.idleTimeoutMillis()) {
+                expired.add(idle.pollLast());
+            }
+        }
+        expired.forEach(ConnectionPool::closeQuietly);
+    }
+
+    private void fillToMinimum() {
+        while (!closed) {
+            synchronized (this) {
+                if (idle.size() + active.size() >= settings.minSize()) {
+                    return;
+                }
+            }
+            // take a permit so filling never pushes the pool past maxSize
+            if (!permits.tryAcquire()) {
+                return;
+            }
+            try {
+                Pooled pooled = open();
+                pooled.returnedAt = System.nanoTime();
+                synchronized (this) {
+                    idle.addLast(pooled);
+                }
+            } catch (SQLException ex) {
+                System.err.println("Connection pool could not open a connection: " + ex.getMessage());
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private void reportLeaks(long now) {
+        long threshold = settings.leakThresholdMillis();
+        if (threshold == 0) {
+            return;
+        }
+        for (Pooled pooled : active) {
+            long heldMillis = TimeUnit.NANOSECONDS.toMillis(now - pooled.borrowedAt);
+            if (heldMillis > threshold && !pooled.leakReported) {
+                pooled.leakReported = true;
+                leaks.incrementAndGet();
+                System.err.println("Possible connection leak: borrowed " + heldMillis + " ms ago");
+                if (pooled.borrowedBy != null) {
+                    pooled.borrowedBy.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static boolean isValid(Pooled pooled) {
+        try {
+            return pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Pooled pooled) {
+        try {
+            pooled.connection.close();
+        } catch (SQLException ex) {
+            // already unusable; nothing left to clean up
+        }
+    }
+
+    /*
+     * A real connection plus its bookkeeping. Each borrow gets a fresh proxy,
+     * so a caller that keeps using a connection after closing it gets an
+     * error instead of sharing the next borrower's session.
+     */
+    private final class Pooled {
+
+        final Connection connection;
+        volatile long returnedAt;
+        volatile long borrowedAt;
+        volatile Throwable borrowedBy;
+        volatile boolean leakReported;
+
+        Pooled(Connection connection) {
+            this.connection = connection;
+        }
+
+        Connection handOut() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Loan(this));
+        }
+    }
+
+    private final class Loan implements InvocationHandler {
+
+        private final Pooled pooled;
+        private boolean returned;
+
+        Loan(Pooled pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        giveBack(pooled);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || pooled.connection.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled " + pooled.connection;
+                }
+                default -> {
+                    if (returned) {
+                        throw new SQLException("Connection is closed");
+                    }
+                }
+            }
+            try {
+                return method.invoke(pooled.connection, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+public class ConnectionPoolTests {
+
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger rollbacks = new AtomicInteger();
+    private ConnectionPool pool;
+
+    // a stand-in for a JDBC connection that only tracks auto-commit and closing
+    private Connection fakeConnection() {
+        opened.incrementAndGet();
+        AtomicBoolean autoCommit = new AtomicBoolean(true);
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getAutoCommit" -> autoCommit.get();
+                    case "setAutoCommit" -> {
+                        autoCommit.set((Boolean) args[0]);
+                        yield null;
+                    }
+                    case "rollback" -> {
+                        rollbacks.incrementAndGet();
+                        yield null;
+                    }
+                    case "isValid" -> !closed.get();
+                    case "isClosed" -> closed.get();
+                    case "close" -> {
+                        closed.set(true);
+                        yield null;
+                    }
+                    default -> null;
+                });
+    }
+
+    @BeforeEach
+    void setup() {
+        pool = new ConnectionPool(this::fakeConnection,
+                new ConnectionPool.Settings(0, 2, 50, 60_000, 0, 0, false));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void reusesConnections() throws SQLException {
+        try (var conn = pool.getConnection()) {
+            assertFalse(conn.isClosed());
+        }
+        try (var conn = pool.getConnection()) {
+            assertFalse(conn.isClosed());
+        }
+        assertEquals(1, opened.get());
+        assertEquals(2, pool.stats().borrows());
+        assertEquals(1, pool.stats().idle());
+    }
+
+    @Test
+    void timesOutWhenExhausted() throws SQLException {
+        var first = pool.getConnection();
+        var second = pool.getConnection();
+
+        assertThrows(SQLException.class, () -> pool.getConnection());
+        assertEquals(1, pool.stats().timeouts());
+        assertEquals(2, pool.stats().active());
+
+        first.close();
+        pool.getConnection().close();
+        second.close();
+    }
+
+    @Test
+    void closedLoanIsUnusable() throws SQLException {
+        var conn = pool.getConnection();
+        conn.close();
+        conn.close();
+
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, () -> conn.prepareStatement("SELECT 1"));
+        assertEquals(1, pool.stats().idle(), "Closing twice should return the connection once");
+    }
+
+    @Test
+    void openTransactionIsRolledBack() throws SQLException {
+        try (var conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+        }
+        try (var conn = pool.getConnection()) {
+            assertTrue(conn.getAutoCommit());
+        }
+        assertEquals(1, rollbacks.get());
+    }
+}
@@ -1,8 +1,11 @@
 package dataaccess;
 
+import chess.ChessGame;
+import chess.ChessMove;
 import model.AuthData;
 import model.GameData;
 import model.UserData;
+import java.util.Collection;
 import java.util.List;
 
 
@@ -13,14 +16,44 @@ public interface DataAccess {
     UserData getUser(String username) throws DataAccessException;
 
     void createGame(GameData game) throws DataAccessException;
+
+    /**
+     * Creates several games in one round trip where the store allows it
+     */
+    void createGames(List<GameData> games) throws DataAccessException;
     GameData getGame(int gameID) throws DataAccessException;
     List<GameData> listGames() throws DataAccessException;
     void updateGame(GameData game) throws DataAccessException;
 
+    /**
+     * Updates several games in one round trip where the store allows it.
+     * Either all of them are updated or, if one fails, none are.
+     */
+    void updateGames(List<GameData> games) throws DataAccessException;
+
+    /**
+     * Records one move of a game. Cheaper than {@link #updateGame} for the
+     * common case where only the position changed.
+     *
+     * @param game the game as it is after the move
+     */
+    void recordMove(int gameID, ChessMove move, ChessGame game) throws DataAccessException;
+
+    /**
+     * @return every move recorded for the game, in the order played
+     */
+    List<ChessMove> getMoves(int gameID) throws DataAccessException;
+
     void createAuth(AuthData auth) throws DataAccessException;
     AuthData getAuth(String authToken) throws DataAccessException;
     void deleteAuth(String authToken) throws DataAccessException;
 
+    /**
+     * Deletes several tokens in one round trip where the store allows it;
+     * tokens that do not exist are skipped
+     */
+    void deleteAuths(Collection<String> authTokens) throws DataAccessException;
+
     int nextGameID() throws DataAccessException;
 
 }
@@ -8,9 +8,26 @@ public class DatabaseManager {
     private static String dbUsername;
     private static String dbPassword;
     private static String connectionUrl;
+    private static ConnectionPool.Settings poolSettings;
+    private static ConnectionPool pool;
 
     /*
-     * Load the database information for the db.properties file.
+     * Connector/J settings. Pooled connections live long enough for the
+     * driver's per-connection cache of server-side prepared statements to
+     * pay off, so re-preparing the same SQL costs no round trip.
+     * rewriteBatchedStatements turns JDBC batches into multi-row statements.
+     */
+    private static final String DRIVER_OPTIONS = "useServerPrepStmts=true&cachePrepStmts=true"
+            + "&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048&rewriteBatchedStatements=true";
+
+    /*
+     * Load the database information for the db.properties file. Besides
+     * db.name, db.user, db.password, db.host and db.port it may set the
+     * connection pool: db.pool.minSize (default 2), db.pool.maxSize (10),
+     * db.pool.timeoutMillis (5000), db.pool.idleTimeoutMillis (300000),
+     * db.pool.validateAfterMillis (1000), db.pool.leakThresholdMillis
+     * (30000, 0 for off) and db.pool.leakStackTraces (false; true records
+     * the borrowing stack on every borrow). See ConnectionPool.
      */
     static {
         loadPropertiesFromResources();
@@ -52,20 +69,68 @@ public class DatabaseManager {
                     gameName VARCHAR(100),
                     whiteUsername VARCHAR(50),
                     blackUsername VARCHAR(50),
-                    gameState TEXT
+                    gameState BLOB,
+                    snapshotPly INT NOT NULL DEFAULT 0
                 )
                 """);
 
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS game_move (
+                    gameID INT NOT NULL,
+                    ply INT NOT NULL,
+                    move INT NOT NULL,
+                    playedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+                    PRIMARY KEY (gameID, ply)
+                )
+                """);
+
+            // next free value of each ID sequence; see MySqlDataAccess.leaseGameIDs
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS id_sequence (
+                    name VARCHAR(50) PRIMARY KEY,
+                    nextValue BIGINT NOT NULL
+                )
+                """);
+
+            migrateGameState(conn, stmt);
+            migrateSnapshotPly(conn, stmt);
+
         } catch (SQLException ex) {
             throw  new DataAccessException("Failed to create tables", ex);
         }
     }
 
+    /*
+     * Games used to be stored as Gson JSON in a TEXT column. MySQL keeps the
+     * bytes when the column becomes a BLOB, and MySqlDataAccess still reads
+     * those old rows as JSON.
+     */
+    private static void migrateGameState(Connection conn, Statement stmt) throws SQLException {
+        try (var columns = conn.getMetaData().getColumns(databaseName, null, "game", "gameState")) {
+            if (columns.next() && !columns.getString("TYPE_NAME").contains("BLOB")) {
+                stmt.executeUpdate("ALTER TABLE game MODIFY gameState BLOB");
+            }
+        }
+    }
+
+    /*
+     * Tables created before snapshotPly existed get it with 0, which makes
+     * listGames fetch their whole move log until the next snapshot.
+     */
+    private static void migrateSnapshotPly(Connection conn, Statement stmt) throws SQLException {
+        try (var columns = conn.getMetaData().getColumns(databaseName, null, "game", "snapshotPly")) {
+            if (!columns.next()) {
+                stmt.executeUpdate("ALTER TABLE game ADD COLUMN snapshotPly INT NOT NULL DEFAULT 0");
+            }
+        }
+    }
+
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Borrows a connection to the database from the pool, with the catalog set
+     * based upon the properties specified in db.properties. Connections to the
+     * database should be short-lived, and you must close the connection when you
+     * are done with it, which returns it to the pool. The easiest way to do that
+     * is with a try-with-resource block.
      * <br/>
      * <code>
      * try (var conn = DatabaseManager.getConnection()) {
@@ -75,15 +140,34 @@ public class DatabaseManager {
      */
     static Connection getConnection() throws DataAccessException {
         try {
-            //do not wrap the following line with a try-with-resources
-            var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
-            conn.setCatalog(databaseName);
-            return conn;
+            return pool().getConnection();
         } catch (SQLException ex) {
             throw new DataAccessException("failed to get connection", ex);
         }
     }
 
+    /**
+     * @return the connection pool's current counters
+     */
+    public static ConnectionPool.Stats poolStats() {
+        return pool().stats();
+    }
+
+    /*
+     * Created on first use rather than at class load, so createDatabase can
+     * run before the pool connects to the catalog
+     */
+    private static synchronized ConnectionPool pool() {
+        if (pool == null) {
+            pool = new ConnectionPool(() -> {
+                var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
+                conn.setCatalog(databaseName);
+                return conn;
+            }, poolSettings);
+        }
+        return pool;
+    }
+
     private static void loadPropertiesFromResources() {
         try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("db.properties")) {
             if (propStream == null) {
@@ -104,6 +188,15 @@ public class DatabaseManager {
 
         var host = props.getProperty("db.host");
         var port = Integer.parseInt(props.getProperty("db.port"));
-        connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+        connectionUrl = String.format("jdbc:mysql://%s:%d?%s", host, port, DRIVER_OPTIONS);
+
+        poolSettings = new ConnectionPool.Settings(
+                Integer.parseInt(props.getProperty("db.pool.minSize", "2")),
+                Integer.parseInt(props.getProperty("db.pool.maxSize", "10")),
+                Long.parseLong(props.getProperty("db.pool.timeoutMillis", "5000")),
+                Long.parseLong(props.getProperty("db.pool.idleTimeoutMillis", "300000")),
+                Long.parseLong(props.getProperty("db.pool.validateAfterMillis", "1000")),
+                Long.parseLong(props.getProperty("db.pool.leakThresholdMillis", "30000")),
+                Boolean.parseBoolean(props.getProperty("db.pool.leakStackTraces", "false")));
     }
 }
@@ -0,0 +1,57 @@
+package dataaccess;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out unique IDs from blocks leased from a shared sequence, hi/lo
+ * style. Each block is used up from memory with an atomic counter, so only
+ * one caller in every {@code blockSize} goes to the store, and callers never
+ * wait for each other unless a block has just run out.
+ * <p>
+ * IDs are unique across every allocator leasing from the same sequence,
+ * and increase within one allocator. The rest of a block is skipped when
+ * the process stops, so IDs have gaps.
+ */
+public class IdAllocator {
+
+    @FunctionalInterface
+    public interface BlockSource {
+        /**
+         * Reserves {@code size} consecutive IDs for the caller alone
+         *
+         * @return the first reserved ID
+         */
+        long lease(int size) throws DataAccessException;
+    }
+
+    private record Block(AtomicLong next, long end) {}
+
+    private final BlockSource source;
+    private final int blockSize;
+    private volatile Block block = new Block(new AtomicLong(), 0);
+
+    public IdAllocator(BlockSource source, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Bad ID block size: " + blockSize);
+        }
+        this.source = source;
+        this.blockSize = blockSize;
+    }
+
+    public long next() throws DataAccessException {
+        while (true) {
+            Block current = block;
+            long id = current.next().getAndIncrement();
+            if (id < current.end()) {
+                return id;
+            }
+            synchronized (this) {
+                // whoever got here first has already leased the next block
+                if (block == current) {
+                    long first = source.lease(blockSize);
+                    block = new Block(new AtomicLong(first), first + blockSize);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class IdAllocatorTests {
+
+    private final AtomicLong sequence = new AtomicLong(1);
+    private final AtomicInteger leases = new AtomicInteger();
+
+    // a stand-in for the sequence row
+    private long lease(int size) {
+        leases.incrementAndGet();
+        return sequence.getAndAdd(size);
+    }
+
+    @Test
+    void idsComeFromMemoryWithinABlock() throws Exception {
+        IdAllocator ids = new IdAllocator(this::lease, 10);
+
+        for (long expected = 1; expected <= 25; expected++) {
+            assertEquals(expected, ids.next());
+        }
+        assertEquals(3, leases.get());
+    }
+
+    @Test
+    void allocatorsSharingASequenceNeverClash() throws Exception {
+        IdAllocator first = new IdAllocator(this::lease, 5);
+        IdAllocator second = new IdAllocator(this::lease, 5);
+
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            assertTrue(seen.add(first.next()));
+            assertTrue(seen.add(second.next()));
+        }
+    }
+
+    @Test
+    void concurrentCallersGetUniqueIds() throws Exception {
+        IdAllocator ids = new IdAllocator(this::lease, 7);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    try {
+                        if (!seen.add(ids.next())) {
+                            duplicates.incrementAndGet();
+                        }
+                    } catch (DataAccessException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, duplicates.get());
+        assertEquals(8_000, seen.size());
+        assertEquals((8_000 + 6) / 7, leases.get(), "Each block should be leased exactly once");
+    }
+
+    @Test
+    void failedLeaseIsRetriedOnNextCall() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        IdAllocator ids = new IdAllocator(size -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new DataAccessException("Database down");
+            }
+            return lease(size);
+        }, 10);
+
+        assertThrows(DataAccessException.class, ids::next);
+        assertEquals(1, ids.next());
+    }
+}
@@ -1,26 +1,32 @@
 package dataaccess;
 
+import chess.ChessGame;
+import chess.ChessMove;
 import model.AuthData;
 import model.GameData;
 import model.UserData;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class InMemoryDAO implements DataAccess{
 
     private final Map<String, UserData> users;
     private final Map<Integer, GameData> games;
     private final Map<String, AuthData> auths;
-    private int nextID = 1;
+    private final Map<Integer, List<ChessMove>> moves;
+    private final AtomicInteger nextID = new AtomicInteger(1);
 
 
     public InMemoryDAO() {
         this.users = new HashMap<>();
         this.games = new HashMap<>();
         this.auths = new HashMap<>();
+        this.moves = new HashMap<>();
     }
 
     @Override
@@ -28,6 +34,7 @@ public class InMemoryDAO implements DataAccess{
         users.clear();
         games.clear();
         auths.clear();
+        moves.clear();
 
     }
 
@@ -62,6 +69,19 @@ public class InMemoryDAO implements DataAccess{
         }
     }
 
+    @Override
+    public void createGames(List<GameData> newGames) throws DataAccessException {
+
+        for (GameData game : newGames) {
+            if (games.containsKey(game.gameID())) {
+                throw new DataAccessException("Game already exists");
+            }
+        }
+        for (GameData game : newGames) {
+            games.put(game.gameID(), game);
+        }
+    }
+
     @Override
     public GameData getGame(int gameID) throws DataAccessException{
 
@@ -87,6 +107,34 @@ public class InMemoryDAO implements DataAccess{
         }
     }
 
+    @Override
+    public void updateGames(List<GameData> updated) throws DataAccessException {
+
+        for (GameData game : updated) {
+            if (!games.containsKey(game.gameID())) {
+                throw new DataAccessException("Game can't be updated. It doesn't exist.");
+            }
+        }
+        for (GameData game : updated) {
+            games.put(game.gameID(), game);
+        }
+    }
+
+    @Override
+    public void recordMove(int gameID, ChessMove move, ChessGame game) throws DataAccessException {
+
+        GameData g = getGame(gameID);
+        games.put(gameID, new GameData(gameID, g.whiteUsername(), g.blackUsername(), g.gameName(), game));
+        moves.computeIfAbsent(gameID, id -> new ArrayList<>()).add(move);
+    }
+
+    @Override
+    public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+
+        getGame(gameID);
+        return new ArrayList<>(moves.getOrDefault(gameID, List.of()));
+    }
+
     @Override
     public void createAuth(AuthData auth) throws DataAccessException {
 
@@ -111,8 +159,16 @@ public class InMemoryDAO implements DataAccess{
         }
     }
 
+    @Override
+    public void deleteAuths(Collection<String> authTokens) {
+
+        for (String authToken : authTokens) {
+            auths.remove(authToken);
+        }
+    }
+
     @Override
     public int nextGameID() {
-        return nextID++;
+        return nextID.getAndIncrement();
     }
 }
@@ -1,7 +1,12 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessJson;
+import chess.ChessMove;
+import chess.GameCodec;
 import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.PackedMove;
 import com.google.gson.GsonBuilder;
 import model.AuthData;
 import model.GameData;
@@ -9,15 +14,43 @@ import model.UserData;
 import org.mindrot.jbcrypt.BCrypt;
 import com.google.gson.Gson;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 import static dataaccess.DatabaseManager.getConnection;
 
+/*
+ * Games are stored as a snapshot in game.gameState plus an append-only log in
+ * game_move with one row per move. recordMove only appends a row, and
+ * rewrites the snapshot every SNAPSHOT_INTERVAL plies or when the game ends;
+ * reads load the snapshot and replay the moves logged after it. The ply of a
+ * snapshot follows from its fullmove number and side to move; game.snapshotPly
+ * repeats it only so listGames can fetch every game's tail in one query. Rows
+ * written before that column existed hold 0 there, and the replay skips the
+ * moves their snapshot already contains.
+ */
 public class MySqlDataAccess implements DataAccess {
 
-    Gson gson = new GsonBuilder()
+    private static final int SNAPSHOT_INTERVAL = 16;
+    private static final String MOVES_AFTER =
+            "SELECT gameID, ply, move FROM game_move WHERE gameID = ? AND ply > ? ORDER BY ply";
+    private static final String INSERT_GAME = "INSERT INTO game (gameID, gameName, whiteUsername, blackUsername,"
+            + " gameState, snapshotPly) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_GAME =
+            "UPDATE game SET whiteUsername = ?, blackUsername = ?, gameState = ?, snapshotPly = ? WHERE gameID = ?";
+    private static final String DELETE_AUTH = "DELETE FROM auth WHERE token = ?";
+    private static final int GAME_ID_BLOCK = 100;
+
+    private final IdAllocator gameIDs = new IdAllocator(this::leaseGameIDs, GAME_ID_BLOCK);
+
+    Gson gson = ChessJson.register(new GsonBuilder())
             .serializeNulls()
             .enableComplexMapKeySerialization()
             .create();
@@ -30,12 +63,14 @@ public class MySqlDataAccess implements DataAccess {
     public void clear() throws DataAccessException {
         try (var conn = getConnection();
              var stmt1 = conn.prepareStatement("DELETE FROM auth");
-             var stmt2 = conn.prepareStatement("DELETE FROM game");
-             var stmt3 = conn.prepareStatement("DELETE FROM user")) {
+             var stmt2 = conn.prepareStatement("DELETE FROM game_move");
+             var stmt3 = conn.prepareStatement("DELETE FROM game");
+             var stmt4 = conn.prepareStatement("DELETE FROM user")) {
 
             stmt1.executeUpdate();
             stmt2.executeUpdate();
             stmt3.executeUpdate();
+            stmt4.executeUpdate();
 
         } catch (SQLException ex) {
             throw new DataAccessException("Could not clear tables", ex);
@@ -86,27 +121,47 @@ public class MySqlDataAccess implements DataAccess {
 
     @Override
     public void createGame(GameData game) throws DataAccessException {
-        String insert = "INSERT INTO game (gameID, gameName, whiteUsername, blackUsername, gameState) VALUES (?, ?, ?, ?, ?)";
-
-        String gameStateJson = gson.toJson(game.game());
-
-        try (var conn = getConnection(); var stmt = conn.prepareStatement(insert)) {
-            stmt.setInt(1, game.gameID());
-            stmt.setString(2, game.gameName());
-            stmt.setString(3, game.whiteUsername());
-            stmt.setString(4, game.blackUsername());
-            stmt.setString(5, gameStateJson);
+        try (var conn = getConnection(); var stmt = conn.prepareStatement(INSERT_GAME)) {
+            bindInsert(stmt, game);
             stmt.executeUpdate();
         } catch (SQLException ex) {
             throw new DataAccessException("Can't insert game", ex);
         }
     }
 
+    /*
+     * One batch in one transaction; the driver rewrites the batch into
+     * multi-row INSERTs
+     */
+    @Override
+    public void createGames(List<GameData> games) throws DataAccessException {
+        if (games.isEmpty()) {
+            return;
+        }
+        try (var conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (var stmt = conn.prepareStatement(INSERT_GAME)) {
+                for (GameData game : games) {
+                    bindInsert(stmt, game);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("Can't insert games", ex);
+        }
+    }
+
     @Override
     public GameData getGame(int gameID) throws DataAccessException {
         String query = "SELECT * FROM game WHERE gameID = ?";
 
-        try (var conn = getConnection(); var stmt = conn.prepareStatement(query)) {
+        try (var conn = getConnection(); var stmt = conn.prepareStatement(query);
+             var tail = conn.prepareStatement(MOVES_AFTER)) {
             stmt.setInt(1, gameID);
 
             try (var rs = stmt.executeQuery()) {
@@ -114,9 +169,14 @@ public class MySqlDataAccess implements DataAccess {
                     String gameName = rs.getString("gameName");
                     String whiteUsername = rs.getString("whiteUsername");
                     String blackUsername = rs.getString("blackUsername");
-                    String gameStateJson = rs.getString("gameState");
-
-                    ChessGame chessGame = gson.fromJson(gameStateJson, ChessGame.class);
+                    ChessGame chessGame = readGame(rs.getBytes("gameState"));
+                    if (chessGame != null) {
+                        tail.setInt(1, gameID);
+                        tail.setInt(2, plies(chessGame));
+                        try (var moves = tail.executeQuery()) {
+                            replayMoves(gameID, chessGame, readTail(moves).getOrDefault(gameID, List.of()));
+                        }
+                    }
 
                     return new GameData(gameID, whiteUsername, blackUsername, gameName, chessGame);
                 } else {
@@ -132,16 +192,31 @@ public class MySqlDataAccess implements DataAccess {
     public List<GameData> listGames() throws DataAccessException {
         List<GameData> games = new ArrayList<>();
         String sql = "SELECT * FROM game";
-
-        try (var conn = getConnection(); var stmt = conn.prepareStatement(sql); var rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                int gameID = rs.getInt("gameID");
-                String gameName = rs.getString("gameName");
-                String whiteUsername = rs.getString("whiteUsername");
-                String blackUsername = rs.getString("blackUsername");
-                String gameStateJson = rs.getString("gameState");
-                ChessGame chessGame = gson.fromJson(gameStateJson, ChessGame.class);
-                games.add(new GameData(gameID, whiteUsername, blackUsername, gameName, chessGame));
+        // every game's tail in one round trip rather than one query per game
+        String tails = "SELECT m.gameID, m.ply, m.move FROM game_move m JOIN game g ON g.gameID = m.gameID"
+                + " WHERE m.ply > g.snapshotPly ORDER BY m.gameID, m.ply";
+
+        try (var conn = getConnection()) {
+            // one transaction, so both reads see the same moment
+            conn.setAutoCommit(false);
+            try (var stmt = conn.prepareStatement(sql); var tail = conn.prepareStatement(tails);
+                 var rs = stmt.executeQuery(); var moves = tail.executeQuery()) {
+                Map<Integer, List<LoggedMove>> logged = readTail(moves);
+                while (rs.next()) {
+                    int gameID = rs.getInt("gameID");
+                    String gameName = rs.getString("gameName");
+                    String whiteUsername = rs.getString("whiteUsername");
+                    String blackUsername = rs.getString("blackUsername");
+                    ChessGame chessGame = readGame(rs.getBytes("gameState"));
+                    if (chessGame != null) {
+                        replayMoves(gameID, chessGame, logged.getOrDefault(gameID, List.of()));
+                    }
+                    games.add(new GameData(gameID, whiteUsername, blackUsername, gameName, chessGame));
+                }
+                conn.commit();
+            } catch (SQLException | DataAccessException ex) {
+                conn.rollback();
+                throw ex;
             }
         } catch (SQLException ex) {
             throw new DataAccessException("Failed to list games", ex);
@@ -152,15 +227,8 @@ public class MySqlDataAccess implements DataAccess {
 
     @Override
     public void updateGame(GameData game) throws DataAccessException {
-        String sql = "UPDATE game SET whiteUsername = ?, blackUsername = ?, gameState = ? WHERE gameID = ?";
-        String gameStateJson = gson.toJson(game.game());
-
-        try (var conn = getConnection(); var stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, game.whiteUsername());
-            stmt.setString(2, game.blackUsername());
-            stmt.setString(3, gameStateJson);
-            stmt.setInt(4, game.gameID());
-            stmt.executeUpdate();
+        try (var conn = getConnection(); var stmt = conn.prepareStatement(UPDATE_GAME)) {
+            bindUpdate(stmt, game);
             int rowsUpdated = stmt.executeUpdate();
             if (rowsUpdated == 0) {
                 throw new DataAccessException("Game not found: " + game.gameID());
@@ -170,6 +238,172 @@ public class MySqlDataAccess implements DataAccess {
         }
     }
 
+    @Override
+    public void updateGames(List<GameData> games) throws DataAccessException {
+        if (games.isEmpty()) {
+            return;
+        }
+        try (var conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (var stmt = conn.prepareStatement(UPDATE_GAME)) {
+                for (GameData game : games) {
+                    bindUpdate(stmt, game);
+                    stmt.addBatch();
+                }
+                int[] rowsUpdated = stmt.executeBatch();
+                for (int i = 0; i < rowsUpdated.length; i++) {
+                    if (rowsUpdated[i] == 0) {
+                        throw new DataAccessException("Game not found: " + games.get(i).gameID());
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | DataAccessException ex) {
+                conn.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("Could not update games", ex);
+        }
+    }
+
+    private static void bindInsert(PreparedStatement stmt, GameData game) throws SQLException {
+        stmt.setInt(1, game.gameID());
+        stmt.setString(2, game.gameName());
+        stmt.setString(3, game.whiteUsername());
+        stmt.setString(4, game.blackUsername());
+        stmt.setBytes(5, writeGame(game.game()));
+        stmt.setInt(6, snapshotPly(game.game()));
+    }
+
+    private static void bindUpdate(PreparedStatement stmt, GameData game) throws SQLException {
+        stmt.setString(1, game.whiteUsername());
+        stmt.setString(2, game.blackUsername());
+        stmt.setBytes(3, writeGame(game.game()));
+        stmt.setInt(4, snapshotPly(game.game()));
+        stmt.setInt(5, game.gameID());
+    }
+
+    @Override
+    public void recordMove(int gameID, ChessMove move, ChessGame game) throws DataAccessException {
+        // the select makes the insert a no-op for a missing game
+        String append = "INSERT INTO game_move (gameID, ply, move) SELECT gameID, ?, ? FROM game WHERE gameID = ?";
+        String snapshot = "UPDATE game SET gameState = ?, snapshotPly = ? WHERE gameID = ?";
+        int ply = plies(game);
+
+        try (var conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (var stmt = conn.prepareStatement(append)) {
+                stmt.setInt(1, ply);
+                stmt.setInt(2, PackedMove.fromChessMove(move));
+                stmt.setInt(3, gameID);
+                if (stmt.executeUpdate() == 0) {
+                    throw new DataAccessException("Game not found: " + gameID);
+                }
+                if (ply % SNAPSHOT_INTERVAL == 0 || game.isGameOver()) {
+                    try (var update = conn.prepareStatement(snapshot)) {
+                        update.setBytes(1, writeGame(game));
+                        update.setInt(2, ply);
+                        update.setInt(3, gameID);
+                        update.executeUpdate();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | DataAccessException ex) {
+                conn.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            if (ex.getMessage().toLowerCase().contains("duplicate")) {
+                throw new DataAccessException("Error: move " + ply + " of game " + gameID + " is already recorded", ex);
+            }
+            throw new DataAccessException("Could not record move", ex);
+        }
+    }
+
+    @Override
+    public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+        String sql = "SELECT move FROM game_move WHERE gameID = ? ORDER BY ply";
+        List<ChessMove> moves = new ArrayList<>();
+
+        try (var conn = getConnection(); var stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, gameID);
+
+            try (var rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    moves.add(PackedMove.toChessMove(rs.getInt("move")));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("Could not get moves", ex);
+        }
+        return moves;
+    }
+
+    private record LoggedMove(int ply, int move) {}
+
+    /*
+     * Groups rows of gameID, ply and move by game, keeping their order
+     */
+    private static Map<Integer, List<LoggedMove>> readTail(ResultSet rs) throws SQLException {
+        Map<Integer, List<LoggedMove>> tails = new HashMap<>();
+        while (rs.next()) {
+            tails.computeIfAbsent(rs.getInt("gameID"), id -> new ArrayList<>())
+                    .add(new LoggedMove(rs.getInt("ply"), rs.getInt("move")));
+        }
+        return tails;
+    }
+
+    /*
+     * Brings a snapshot up to date by playing the moves logged after it.
+     * Moves the snapshot already contains are skipped.
+     */
+    private static void replayMoves(int gameID, ChessGame game, List<LoggedMove> tail) throws DataAccessException {
+        int ply = plies(game);
+        for (LoggedMove logged : tail) {
+            if (logged.ply() <= ply) {
+                continue;
+            }
+            ChessMove move = PackedMove.toChessMove(logged.move());
+            if (logged.ply() != ++ply) {
+                throw new DataAccessException("Move log of game " + gameID + " is missing ply " + ply);
+            }
+            try {
+                game.makeMove(move);
+            } catch (InvalidMoveException ex) {
+                throw new DataAccessException("Move log of game " + gameID + " does not replay at " + move, ex);
+            }
+        }
+    }
+
+    // plies played since the start position, as recorded in the game itself
+    private static int plies(ChessGame game) {
+        int black = game.getTeamTurn() == ChessGame.TeamColor.BLACK ? 1 : 0;
+        return 2 * (game.getFullmoveNumber() - 1) + black;
+    }
+
+    private static int snapshotPly(ChessGame game) {
+        return game == null ? 0 : plies(game);
+    }
+
+    private static byte[] writeGame(ChessGame game) {
+        return game == null ? null : GameCodec.encode(game);
+    }
+
+    private ChessGame readGame(byte[] gameState) throws DataAccessException {
+        if (gameState == null) {
+            return null;
+        }
+        try {
+            if (GameCodec.isEncoded(gameState)) {
+                return GameCodec.decode(gameState);
+            }
+            // rows written before the binary format hold Gson JSON
+            return gson.fromJson(new String(gameState, StandardCharsets.UTF_8), ChessGame.class);
+        } catch (RuntimeException ex) {
+            throw new DataAccessException("Stored game state is unreadable", ex);
+        }
+    }
+
     @Override
     public void createAuth(AuthData auth) throws DataAccessException {
         String sql = "INSERT INTO auth (token, username) VALUES (?,?)";
@@ -206,9 +440,7 @@ public class MySqlDataAccess implements DataAccess {
 
     @Override
     public void deleteAuth(String authToken) throws DataAccessException {
-        String sql = "DELETE FROM auth WHERE token = ?";
-
-        try (var conn = getConnection(); var stmt = conn.prepareStatement(sql)) {
+        try (var conn = getConnection(); var stmt = conn.prepareStatement(DELETE_AUTH)) {
             stmt.setString(1, authToken);
             stmt.executeUpdate();
         } catch (SQLException ex) {
@@ -217,16 +449,46 @@ public class MySqlDataAccess implements DataAccess {
     }
 
     @Override
-    public int nextGameID() throws DataAccessException {
-        String sql = "SELECT MAX(gameID) AS maxID FROM game";
+    public void deleteAuths(Collection<String> authTokens) throws DataAccessException {
+        if (authTokens.isEmpty()) {
+            return;
+        }
+        try (var conn = getConnection(); var stmt = conn.prepareStatement(DELETE_AUTH)) {
+            for (String authToken : authTokens) {
+                stmt.setString(1, authToken);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException ex) {
+            throw new DataAccessException("Could not delete auths", ex);
+        }
+    }
 
-        try (var conn = getConnection(); var stmt = conn.prepareStatement(sql)) {
-            var rs = stmt.executeQuery();
+    @Override
+    public int nextGameID() throws DataAccessException {
+        return Math.toIntExact(gameIDs.next());
+    }
 
-            if (rs.next()) {
-                return rs.getInt("maxID") + 1;
-            } else {
-                return 1;
+    /*
+     * Reserves the next block of game IDs in one atomic UPDATE. LAST_INSERT_ID
+     * remembers the new value for this connection alone, so concurrent
+     * leases cannot see each other's block. The sequence never starts below
+     * the highest stored game, which covers games created before it existed.
+     */
+    private long leaseGameIDs(int size) throws DataAccessException {
+        String seed = "INSERT IGNORE INTO id_sequence (name, nextValue) VALUES ('game', 1)";
+        String lease = "UPDATE id_sequence SET nextValue = LAST_INSERT_ID("
+                + "GREATEST(nextValue, (SELECT COALESCE(MAX(gameID), 0) + 1 FROM game)) + ?) WHERE name = 'game'";
+
+        try (var conn = getConnection(); var insert = conn.prepareStatement(seed);
+             var update = conn.prepareStatement(lease);
+             var query = conn.prepareStatement("SELECT LAST_INSERT_ID()")) {
+            insert.executeUpdate();
+            update.setInt(1, size);
+            update.executeUpdate();
+            try (var rs = query.executeQuery()) {
+                rs.next();
+                return rs.getLong(1) - size;
             }
         } catch (SQLException ex) {
             throw new DataAccessException("Could not get next game ID", ex);
@@ -1,5 +1,8 @@
 package dataaccess;
 
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
 import model.AuthData;
 import model.GameData;
 import model.UserData;
@@ -7,6 +10,7 @@ import org.junit.jupiter.api.*;
 import org.mindrot.jbcrypt.BCrypt;
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
 import java.util.List;
 
 class MySqlDataAccessTest {
@@ -126,6 +130,83 @@ class MySqlDataAccessTest {
         assertThrows(DataAccessException.class, () -> dao.updateGame(updated));
     }
 
+    @Test
+    void validCreateAndUpdateGames() throws DataAccessException {
+        dao.createGames(List.of(game, new GameData(2, null, null, "Second Game", null)));
+        assertEquals(2, dao.listGames().size());
+
+        dao.updateGames(List.of(new GameData(1, "white", null, "Test Game", null),
+                new GameData(2, null, "black", "Second Game", null)));
+        assertEquals("white", dao.getGame(1).whiteUsername());
+        assertEquals("black", dao.getGame(2).blackUsername());
+    }
+
+    @Test
+    void updateGamesWithMissingGameChangesNothing() throws DataAccessException {
+        dao.createGame(game);
+        List<GameData> updates = List.of(new GameData(1, "white", null, "Test Game", null),
+                new GameData(9999, null, null, "Missing", null));
+        assertThrows(DataAccessException.class, () -> dao.updateGames(updates));
+        assertNull(dao.getGame(1).whiteUsername());
+    }
+
+    @Test
+    void validDeleteAuths() throws DataAccessException {
+        dao.createUser(user);
+        dao.createAuth(auth);
+        dao.createAuth(new AuthData("token456", "tester"));
+        dao.deleteAuths(List.of(auth.authToken(), "token456", "missing"));
+        assertNull(dao.getAuth(auth.authToken()));
+        assertNull(dao.getAuth("token456"));
+    }
+
+    @Test
+    void recordedMovesReplay() throws Exception {
+        ChessGame chess = new ChessGame();
+        dao.createGame(new GameData(game.gameID(), null, null, game.gameName(), chess));
+        List<ChessMove> played = new ArrayList<>();
+        // knights out and back: 20 plies, so one snapshot and a tail of 4
+        int[][] hops = {{1, 2, 3, 3}, {8, 2, 6, 3}, {3, 3, 1, 2}, {6, 3, 8, 2}};
+        for (int i = 0; i < 20; i++) {
+            int[] hop = hops[i % 4];
+            ChessMove move = new ChessMove(new ChessPosition(hop[0], hop[1]), new ChessPosition(hop[2], hop[3]), null);
+            chess.makeMove(move);
+            dao.recordMove(game.gameID(), move, chess);
+            played.add(move);
+        }
+
+        GameData stored = dao.getGame(game.gameID());
+        assertEquals(chess, stored.game());
+        assertEquals(chess.getFullmoveNumber(), stored.game().getFullmoveNumber());
+        assertEquals(played, dao.getMoves(game.gameID()));
+    }
+
+    @Test
+    void listGamesReplaysEveryTail() throws Exception {
+        ChessGame first = new ChessGame();
+        ChessGame second = new ChessGame();
+        dao.createGames(List.of(new GameData(1, null, null, "first", first), new GameData(2, null, null, "second", second)));
+        ChessMove e4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        ChessMove d4 = new ChessMove(new ChessPosition(2, 4), new ChessPosition(4, 4), null);
+        first.makeMove(e4);
+        dao.recordMove(1, e4, first);
+        second.makeMove(d4);
+        dao.recordMove(2, d4, second);
+
+        List<GameData> listed = dao.listGames();
+        assertEquals(2, listed.size());
+        for (GameData stored : listed) {
+            assertEquals(stored.gameID() == 1 ? first : second, stored.game());
+        }
+    }
+
+    @Test
+    void recordMoveMissingGameFails() {
+        ChessGame chess = new ChessGame();
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        assertThrows(DataAccessException.class, () -> dao.recordMove(9999, move, chess));
+    }
+
     @Test
     void validNextGameID() throws DataAccessException {
         int id1 = dao.nextGameID();
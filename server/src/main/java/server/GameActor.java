@@ -0,0 +1,130 @@
+package server;
+
+import dataaccess.DataAccessException;
+import model.GameData;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Owns one game while it is active. Commands for the game queue up in the
+ * actor's mailbox and run one at a time, in arrival order, on a single
+ * drain task, so two moves for the same game can never interleave. The game
+ * is loaded once and then kept in memory between commands; only the drain
+ * task touches it.
+ * <p>
+ * Once its mailbox is empty and nobody is connected to the game, the actor
+ * retires: it takes no more commands and {@link GameActors} starts a fresh
+ * one for the next command.
+ */
+public class GameActor {
+
+    /**
+     * Work for one game, run on the game's actor
+     */
+    @FunctionalInterface
+    public interface Command {
+        void run(GameActor actor) throws Exception;
+    }
+
+    private record Letter(Command command, CompletableFuture<Void> done) {}
+
+    private final int gameID;
+    private final GameActors owner;
+
+    // guarded by this
+    private final Queue<Letter> mailbox = new ArrayDeque<>();
+    private boolean draining;
+    private boolean retired;
+
+    // only touched by the drain task
+    private GameData game;
+
+    GameActor(int gameID, GameActors owner) {
+        this.gameID = gameID;
+        this.owner = owner;
+    }
+
+    public int gameID() {
+        return gameID;
+    }
+
+    /**
+     * @return the game, loaded from the database on first use, or null if it
+     * does not exist
+     * @throws DataAccessException if earlier changes to the game are still
+     *                             unstored, since the stored row is stale
+     */
+    public GameData game() throws DataAccessException {
+        if (game == null) {
+            // an earlier actor for this game may have left changes unstored
+            if (Server.writes.isPending(gameID)) {
+                Server.writes.flush();
+            }
+            // moves made on a stale game would reuse the plies still queued
+            if (Server.writes.isPending(gameID)) {
+                throw new DataAccessException("Game " + gameID + " is not saved yet; try again shortly");
+            }
+            game = Server.gameDAO.getGame(gameID);
+        }
+        return game;
+    }
+
+    /**
+     * Replaces the in-memory game after the caller has stored it
+     */
+    public void update(GameData game) {
+        this.game = game;
+    }
+
+    /**
+     * Drops the in-memory game so the next command reads it from the
+     * database again, for example after changes were dropped or made
+     * outside the actor
+     */
+    public void reload() {
+        game = null;
+    }
+
+    /**
+     * @return a future for the command, or null if the actor has retired
+     */
+    synchronized CompletableFuture<Void> offer(Command command) {
+        if (retired) {
+            return null;
+        }
+        var letter = new Letter(command, new CompletableFuture<>());
+        mailbox.add(letter);
+        if (!draining) {
+            draining = true;
+            owner.executor().execute(this::drain);
+        }
+        return letter.done();
+    }
+
+    private void drain() {
+        while (true) {
+            Letter letter;
+            synchronized (this) {
+                letter = mailbox.poll();
+                if (letter == null) {
+                    draining = false;
+                    if (Server.rooms.sessions(gameID).isEmpty()) {
+                        retired = true;
+                    }
+                    break;
+                }
+            }
+            try {
+                letter.command().run(this);
+                letter.done().complete(null);
+            } catch (Exception ex) {
+                letter.done().completeExceptionally(ex);
+            }
+        }
+        if (retired) {
+            owner.retired(this);
+        }
+    }
+}
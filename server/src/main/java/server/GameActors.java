@@ -0,0 +1,72 @@
+package server;
+
+import dataaccess.DataAccessException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Routes commands to the {@link GameActor} of their game, starting one when
+ * the game has none. Each drain runs on its own virtual thread, so actors
+ * waiting on the database do not hold up other games.
+ */
+public class GameActors {
+
+    private final Map<Integer, GameActor> actors = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Queues a command on the game's actor
+     *
+     * @return a future that completes once the command has run
+     */
+    public CompletableFuture<Void> submit(int gameID, GameActor.Command command) {
+        while (true) {
+            GameActor actor = actors.computeIfAbsent(gameID, id -> new GameActor(id, this));
+            CompletableFuture<Void> done = actor.offer(command);
+            if (done != null) {
+                return done;
+            }
+            // it retired after we looked it up; make way for a new one
+            actors.remove(gameID, actor);
+        }
+    }
+
+    /**
+     * Runs a command on the game's actor and waits for it
+     *
+     * @throws DataAccessException if the command threw one
+     */
+    public void run(int gameID, GameActor.Command command) throws DataAccessException {
+        try {
+            submit(gameID, command).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof DataAccessException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Makes every current actor read its game from the database again
+     */
+    public void reloadAll() {
+        for (int gameID : actors.keySet()) {
+            submit(gameID, GameActor::reload);
+        }
+    }
+
+    Executor executor() {
+        return executor;
+    }
+
+    void retired(GameActor actor) {
+        actors.remove(actor.gameID(), actor);
+    }
+}
@@ -0,0 +1,105 @@
+package server;
+
+import org.eclipse.jetty.websocket.api.Session;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WebSocket sessions grouped by the game they are connected to, so a
+ * broadcast only touches the sockets of that one game. Each session is in
+ * at most one room; a room disappears when its last session leaves.
+ * <p>
+ * A session in a room is bound to the user and token it connected with,
+ * which lets later commands skip the auth lookup. Logging out a token
+ * {@link #revoke revokes} every session bound to it.
+ */
+public class GameRooms {
+
+    public enum Role {
+        WHITE,
+        BLACK,
+        OBSERVER
+    }
+
+    public record Member(int gameID, String authToken, String username, Role role) {}
+
+    private final Map<Integer, Map<Session, Member>> rooms = new ConcurrentHashMap<>();
+    private final Map<Session, Member> members = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a session to its game's room, moving it out of any room it was in.
+     * A session that has already closed is not added.
+     */
+    public void join(Session session, Member member) {
+        // compute locks the session's entry, so a leave cannot run between the two maps
+        members.compute(session, (s, previous) -> {
+            if (!session.isOpen()) {
+                return previous;
+            }
+            if (previous != null && previous.gameID() != member.gameID()) {
+                removeFromRoom(previous.gameID(), session);
+            }
+            // compute is atomic per key, so this cannot race with a room being dropped
+            rooms.compute(member.gameID(), (id, room) -> {
+                Map<Session, Member> joined = room == null ? new ConcurrentHashMap<>() : room;
+                joined.put(session, member);
+                return joined;
+            });
+            return member;
+        });
+    }
+
+    /**
+     * Removes a session from its room, if it is in one
+     *
+     * @return the game the session was connected to, or null
+     */
+    public Integer leave(Session session) {
+        Integer[] left = new Integer[1];
+        members.computeIfPresent(session, (s, member) -> {
+            removeFromRoom(member.gameID(), session);
+            left[0] = member.gameID();
+            return null;
+        });
+        return left[0];
+    }
+
+    /**
+     * Removes every session bound to a token, for when it is logged out.
+     * Logouts are rare, so this scans all sessions rather than keeping an
+     * index by token.
+     */
+    public void revoke(String authToken) {
+        for (var entry : members.entrySet()) {
+            if (entry.getValue().authToken().equals(authToken)) {
+                leave(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * @return the sessions connected to a game; a live view that is safe to
+     * iterate while sessions come and go
+     */
+    public Set<Session> sessions(int gameID) {
+        Map<Session, Member> room = rooms.get(gameID);
+        return room == null ? Set.of() : Collections.unmodifiableSet(room.keySet());
+    }
+
+    /**
+     * @return what the session is bound to, or null if it is in no room
+     */
+    public Member member(Session session) {
+        return members.get(session);
+    }
+
+    private void removeFromRoom(int gameID, Session session) {
+        rooms.computeIfPresent(gameID, (id, room) -> {
+            room.remove(session);
+            return room.isEmpty() ? null : room;
+        });
+    }
+}
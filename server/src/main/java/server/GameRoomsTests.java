@@ -0,0 +1,65 @@
+package server;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+public class GameRoomsTests {
+
+    private final GameRooms rooms = new GameRooms();
+
+    // a stand-in for a WebSocket session that only knows whether it is open
+    private static Session fakeSession(AtomicBoolean open) {
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "isOpen" -> open.get();
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> null;
+                });
+    }
+
+    private static GameRooms.Member member(int gameID) {
+        return new GameRooms.Member(gameID, "token", "user", GameRooms.Role.OBSERVER);
+    }
+
+    @Test
+    void leaveEmptiesTheRoom() {
+        Session session = fakeSession(new AtomicBoolean(true));
+        rooms.join(session, member(1));
+        assertEquals(Set.of(session), rooms.sessions(1));
+
+        assertEquals(1, rooms.leave(session));
+        assertTrue(rooms.sessions(1).isEmpty());
+        assertNull(rooms.member(session));
+    }
+
+    @Test
+    void joinMovesBetweenRooms() {
+        Session session = fakeSession(new AtomicBoolean(true));
+        rooms.join(session, member(1));
+        rooms.join(session, member(2));
+
+        assertTrue(rooms.sessions(1).isEmpty());
+        assertEquals(Set.of(session), rooms.sessions(2));
+    }
+
+    @Test
+    void closedSessionIsNotAdded() {
+        AtomicBoolean open = new AtomicBoolean(true);
+        Session session = fakeSession(open);
+        open.set(false);
+        // the close was handled before the join got to run
+        assertNull(rooms.leave(session));
+
+        rooms.join(session, member(1));
+
+        assertTrue(rooms.sessions(1).isEmpty(), "A closed session would keep the room alive for good");
+        assertNull(rooms.member(session));
+    }
+}
@@ -1,7 +1,10 @@
 package server;
 
+import chess.ChessJson;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import dataaccess.CachingDataAccess;
+import dataaccess.DataAccess;
 import dataaccess.DataAccessException;
 import dataaccess.DatabaseManager;
 import dataaccess.MySqlDataAccess;
@@ -12,17 +15,17 @@ import service.RegisterRequest;
 import service.*;
 import spark.*;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import static spark.Spark.*;
-import org.eclipse.jetty.websocket.api.Session;
 
 
 public class Server {
 
     private int port;
-    public static MySqlDataAccess authDAO;
-    public static MySqlDataAccess gameDAO;
-    public static Map<Session, Integer> sessions = new ConcurrentHashMap<>();
+    public static DataAccess authDAO;
+    public static DataAccess gameDAO;
+    public static final GameRooms rooms = new GameRooms();
+    public static final GameActors games = new GameActors();
+    public static WriteBehind writes;
 
     public int run(int desiredPort) {
         Spark.port(desiredPort);
@@ -36,15 +39,20 @@ public class Server {
             System.err.println("Error configuring database: " + ex.getMessage());
         }
 
-        var dao = new MySqlDataAccess();
+        // token checks run on every request, so they go through a cache
+        var dao = new CachingDataAccess(new MySqlDataAccess());
         Server.authDAO = dao;
         Server.gameDAO = dao;
+        var socket = new WebSocketHandler();
+        Server.writes = new WriteBehind(dao, gameID -> games.submit(gameID, socket::resync));
+        Runtime.getRuntime().addShutdownHook(new Thread(Server.writes::close));
         var userService = new UserService(dao);
+        userService.addLogoutListener(rooms::revoke);
         var gameService = new GameService(dao);
-        var gson = new GsonBuilder().serializeNulls().create();
+        var gson = ChessJson.register(new GsonBuilder()).serializeNulls().create();
 
         configureExceptions(gson);
-        Spark.webSocket("/ws", WebSocketHandler.class);
+        Spark.webSocket("/ws", socket);
         registerRoutes(dao, userService, gameService, gson);
 
         Spark.init();
@@ -80,9 +88,11 @@ public class Server {
             });
         }
 
-    private void registerRoutes(MySqlDataAccess dao, UserService userService, GameService gameService, Gson gson) {
+    private void registerRoutes(DataAccess dao, UserService userService, GameService gameService, Gson gson) {
         delete("/db", (req, res) -> {
+            writes.discard();
             dao.clear();
+            games.reloadAll();
             res.type("application/json");
             return "{}";
         });
@@ -116,7 +126,7 @@ public class Server {
             if (token == null || dao.getAuth(token) == null) {
                 throw new DataAccessException("Unauthorized");
             }
-            dao.getAuth(token);
+            writes.flush();
             var games = gameService.listGames();
             res.type("application/json");
             return gson.toJson(Map.of("games", games));
@@ -154,7 +164,6 @@ public class Server {
                 throw new DataAccessException("Unauthorized");
             }
 
-            dao.getAuth(token);
             @SuppressWarnings("unchecked")
             Map<String, ?> body = gson.fromJson(req.body(), Map.class);
             Number gameID = (Number) body.get("gameID");
@@ -170,7 +179,12 @@ public class Server {
             }
 
             var joinReq = new JoinGameReq(gameID.intValue(), JoinGameReq.Color.valueOf(norm), token);
-            gameService.joinGame(joinReq);
+            // through the game's actor, so the join cannot race a move or leave
+            games.run(joinReq.gameID(), actor -> {
+                writes.flush();
+                gameService.joinGame(joinReq);
+                actor.reload();
+            });
             res.type("application/json");
             return "{}";
         });
@@ -179,5 +193,6 @@ public class Server {
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        writes.close();
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package server;
 
 import chess.ChessGame;
+import chess.ChessJson;
 import chess.ChessMove;
 import chess.ChessPosition;
 import com.google.gson.Gson;
@@ -14,28 +15,38 @@ import java.io.IOException;
 
 @WebSocket
 public class WebSocketHandler {
-    private final Gson gson = new Gson();
+    private final Gson gson = ChessJson.gson();
 
     @OnWebSocketConnect
     public void onConnect(Session session) {
     }
 
     @OnWebSocketMessage
-    public void onMessage(Session session, String message) throws IOException, DataAccessException {
+    public void onMessage(Session session, String message) {
         UserGameCommand command = gson.fromJson(message, UserGameCommand.class);
 
-        switch (command.getCommandType()) {
-            case CONNECT -> handleConnect(session, command);
-            case MAKE_MOVE -> handleMakeMove(session, command);
-            case LEAVE -> handleLeave(session, command);
-            case RESIGN -> handleResign(session, command);
-        }
+        // the game's actor runs its commands one at a time, in arrival order
+        Server.games.submit(command.getGameID(), actor -> {
+            switch (command.getCommandType()) {
+                case CONNECT -> handleConnect(actor, session, command);
+                case MAKE_MOVE -> handleMakeMove(actor, session, command);
+                case LEAVE -> handleLeave(actor, session, command);
+                case RESIGN -> handleResign(actor, session, command);
+            }
+        }).exceptionally(ex -> {
+            onError(session, ex);
+            return null;
+        });
     }
 
     @OnWebSocketClose
     public void onClose(Session session, int statusCode, String reason) {
         System.out.print("Closed: " + session + "due to" + reason);
-        Server.sessions.remove(session);
+        Integer gameID = Server.rooms.leave(session);
+        if (gameID != null) {
+            // lets the game's actor retire if that was the last session
+            Server.games.submit(gameID, actor -> { });
+        }
     }
 
     @OnWebSocketError
@@ -52,33 +63,45 @@ public class WebSocketHandler {
     private void notifyOthers(Session sender, int gameID, String message) throws IOException {
         ServerMessage notify = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
         notify.setMessage(message);
-
-        for (var entry : Server.sessions.entrySet()) {
-            if (!entry.getKey().equals(sender) && entry.getValue() == gameID) {
-                entry.getKey().getRemote().sendString(gson.toJson(notify));
-            }
-        }
+        broadcast(sender, gameID, gson.toJson(notify));
     }
 
     private void notifyAll( int gameID, String message) throws IOException {
         ServerMessage notify = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
         notify.setMessage(message);
-
-        for (var entry : Server.sessions.entrySet()) {
-            if (entry.getValue() == gameID) {
-                entry.getKey().getRemote().sendString(gson.toJson(notify));
-            }
-        }
+        broadcast(null, gameID, gson.toJson(notify));
     }
 
     private void loadGame(int gameID, ChessGame game) throws IOException {
         ServerMessage msg = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME);
         msg.setGame(game);
-        String json = gson.toJson(msg);
+        broadcast(null, gameID, gson.toJson(msg));
+    }
+
+    /**
+     * Reloads a game after the write-behind queue dropped changes to it,
+     * and sends everyone in the game the stored board and an error, so no
+     * one keeps playing on moves the server no longer has
+     */
+    public void resync(GameActor actor) throws IOException, DataAccessException {
+        actor.reload();
+        Server.writes.resume(actor.gameID());
+        var gameData = actor.game();
+        if (gameData == null) {
+            return;
+        }
+        loadGame(actor.gameID(), gameData.game());
+
+        ServerMessage error = new ServerMessage(ServerMessage.ServerMessageType.ERROR);
+        error.setErrorMessage("Recent moves could not be saved; the game is back at its last saved position");
+        broadcast(null, actor.gameID(), gson.toJson(error));
+    }
 
-        for (var entry : Server.sessions.entrySet()) {
-            if (entry.getValue() == gameID) {
-                entry.getKey().getRemote().sendString(json);
+    // sends to every open session in the game's room except the sender, if any
+    private void broadcast(Session sender, int gameID, String json) throws IOException {
+        for (Session session : Server.rooms.sessions(gameID)) {
+            if (session != sender && session.isOpen()) {
+                session.getRemote().sendString(json);
             }
         }
     }
@@ -89,55 +112,86 @@ public class WebSocketHandler {
         return "" + x + y;
     }
 
-    private record AuthAndGame(model.AuthData auth, GameData gameData) {}
+    private record AuthAndGame(String username, GameData gameData) {}
 
-    private AuthAndGame check(Session session, UserGameCommand command) throws IOException, DataAccessException {
-        var auth = Server.authDAO.getAuth(command.getAuthToken());
-        if (auth == null) {
+    private AuthAndGame check(GameActor actor, Session session, UserGameCommand command)
+            throws IOException, DataAccessException {
+        String username = authenticate(session, command);
+        if (username == null) {
             sendError(session, "Invalid auth token");
             return null;
         }
 
-        var gameData = Server.gameDAO.getGame(command.getGameID());
+        GameData gameData;
+        try {
+            gameData = actor.game();
+        } catch (DataAccessException ex) {
+            sendError(session, ex.getMessage());
+            return null;
+        }
         if (gameData == null) {
             sendError(session, "Game not found");
             return null;
         }
 
-        return new AuthAndGame(auth, gameData);
+        return new AuthAndGame(username, gameData);
     }
 
-    private void handleConnect(Session session, UserGameCommand command) throws IOException, DataAccessException {
-        if (check(session, command) == null) {
-            return;
+    /*
+     * A session that connected to this game with this token is bound to its
+     * user, so its commands need no database lookup. Anything else, such as a
+     * CONNECT or a token the session was not bound with, is checked against
+     * the auth table.
+     */
+    private String authenticate(Session session, UserGameCommand command) throws DataAccessException {
+        var member = Server.rooms.member(session);
+        if (member != null && member.gameID() == command.getGameID()
+                && member.authToken().equals(command.getAuthToken())) {
+            return member.username();
         }
+        var auth = Server.authDAO.getAuth(command.getAuthToken());
+        return auth == null ? null : auth.username();
+    }
 
-        var gameData = Server.gameDAO.getGame(command.getGameID());
-        Server.sessions.put(session, gameData.gameID());
+    private void handleConnect(GameActor actor, Session session, UserGameCommand command) throws IOException, DataAccessException {
+        var checked = check(actor, session, command);
+        if (checked == null) {
+            return;
+        }
 
-        ServerMessage loadGame = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME);
-        loadGame.setGame(gameData.game());
-        session.getRemote().sendString(gson.toJson(loadGame));
+        var gameData = checked.gameData();
 
-        String username = Server.authDAO.getAuth(command.getAuthToken()).username();
+        String username = checked.username();
         String note;
+        GameRooms.Role role;
         if (username.equals(gameData.whiteUsername())) {
-            note = String.format("%s has joined the game as white", Server.authDAO.getAuth(command.getAuthToken()).username());
+            note = String.format("%s has joined the game as white", username);
+            role = GameRooms.Role.WHITE;
         } else if (username.equals(gameData.blackUsername())) {
-            note = String.format("%s has joined the game as black", Server.authDAO.getAuth(command.getAuthToken()).username());
+            note = String.format("%s has joined the game as black", username);
+            role = GameRooms.Role.BLACK;
         } else {
             note = String.format("%s joined the game as an observer", username);
+            role = GameRooms.Role.OBSERVER;
         }
+        Server.rooms.join(session, new GameRooms.Member(gameData.gameID(), command.getAuthToken(), username, role));
+
+        ServerMessage loadGame = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME);
+        loadGame.setGame(gameData.game());
+        session.getRemote().sendString(gson.toJson(loadGame));
+
         notifyOthers(session, gameData.gameID(), note);
     }
 
-    private void handleMakeMove(Session session, UserGameCommand command) throws IOException, DataAccessException {
-        if (check(session, command) == null)
+    private void handleMakeMove(GameActor actor, Session session, UserGameCommand command) throws IOException, DataAccessException {
+        var checked = check(actor, session, command);
+        if (checked == null)
         {
             return;
         }
 
-        var gameData = Server.gameDAO.getGame(command.getGameID());
+        var gameData = checked.gameData();
+        String username = checked.username();
 
         ChessGame game = gameData.game();
 
@@ -147,9 +201,9 @@ public class WebSocketHandler {
         }
 
         ChessGame.TeamColor playerColor;
-        if (Server.authDAO.getAuth(command.getAuthToken()).username().equals(gameData.whiteUsername())) {
+        if (username.equals(gameData.whiteUsername())) {
             playerColor = ChessGame.TeamColor.WHITE;
-        } else if (Server.authDAO.getAuth(command.getAuthToken()).username().equals(gameData.blackUsername())) {
+        } else if (username.equals(gameData.blackUsername())) {
             playerColor = ChessGame.TeamColor.BLACK;
         } else {
             sendError(session, "User is not a player in this game");
@@ -165,49 +219,54 @@ public class WebSocketHandler {
         try {
 
             game.makeMove(move);
-            GameData updatedData = new GameData(
-                    gameData.gameID(),
-                    gameData.whiteUsername(),
-                    gameData.blackUsername(),
-                    gameData.gameName(),
-                    game
-            );
-            Server.gameDAO.updateGame(updatedData);
 
         } catch (Exception ex) {
             sendError(session, "Illegal move: " + ex.getMessage());
             return;
         }
+        if (game.getStatus().isOver()) {
+            game.setGameOver(true);
+        }
+
+        try {
+            Server.writes.recordMove(gameData.gameID(), move, game);
+        } catch (RuntimeException ex) {
+            // the live game already has the move, so go back to what is stored
+            actor.reload();
+            sendError(session, "Move could not be saved: " + ex.getMessage());
+            return;
+        }
 
         loadGame(gameData.gameID(), game);
 
-        String u = Server.authDAO.getAuth(command.getAuthToken()).username();
         ChessMove mv = command.getMove();
         String from = convertToCord(mv.getStartPosition());
         String to = convertToCord(mv.getEndPosition());
-        String msg =  String.format("%s moved from %s to %s", u, from, to);
+        String msg =  String.format("%s moved from %s to %s", username, from, to);
         notifyOthers(session, gameData.gameID(), msg);
 
         ChessGame.TeamColor opp = playerColor == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
 
         String oppName = (opp == ChessGame.TeamColor.WHITE ? gameData.whiteUsername() : gameData.blackUsername());
 
-        if (game.isInCheckmate(opp)) {
-            notifyAll(gameData.gameID(), oppName + " is in checkmate");
-        } else if (game.isInCheck(opp)) {
-            notifyAll(gameData.gameID(), oppName + " is in check");
-        } else if (game.isInStalemate(opp)) {
-            notifyAll(gameData.gameID(), oppName + " is in stalemate");
+        switch (game.getStatus()) {
+            case CHECKMATE -> notifyAll(gameData.gameID(), oppName + " is in checkmate");
+            case CHECK -> notifyAll(gameData.gameID(), oppName + " is in check");
+            case STALEMATE -> notifyAll(gameData.gameID(), oppName + " is in stalemate");
+            case DRAW -> notifyAll(gameData.gameID(), "The game is a draw");
+            default -> {
+            }
         }
     }
 
-    private void handleResign (Session session, UserGameCommand command) throws IOException, DataAccessException {
-        if (check(session, command) == null)
+    private void handleResign(GameActor actor, Session session, UserGameCommand command) throws IOException, DataAccessException {
+        var checked = check(actor, session, command);
+        if (checked == null)
         {
             return;
         }
 
-        var gameData = Server.gameDAO.getGame(command.getGameID());
+        var gameData = checked.gameData();
         ChessGame game = gameData.game();
 
         if (game.isGameOver()) {
@@ -215,7 +274,7 @@ public class WebSocketHandler {
             return;
         }
 
-        String username = Server.authDAO.getAuth(command.getAuthToken()).username();
+        String username = checked.username();
         boolean isWhite = username.equals(gameData.whiteUsername());
         boolean isBlack = username.equals(gameData.blackUsername());
 
@@ -233,25 +292,26 @@ public class WebSocketHandler {
                 gameData.gameName(),
                 game
         );
-        Server.gameDAO.updateGame(updatedData);
+        Server.writes.updateGame(updatedData);
+        actor.update(updatedData);
 
-        String u = Server.authDAO.getAuth(command.getAuthToken()).username();
-        String msg = String.format("%s has resigned", u);
+        String msg = String.format("%s has resigned", username);
         notifyAll(gameData.gameID(), msg);
     }
 
-    private void handleLeave(Session session, UserGameCommand command) throws IOException, DataAccessException {
-        if (check(session, command) == null)
+    private void handleLeave(GameActor actor, Session session, UserGameCommand command) throws IOException, DataAccessException {
+        var checked = check(actor, session, command);
+        if (checked == null)
         {
             return;
         }
 
-        var gameData = Server.gameDAO.getGame(command.getGameID());
+        var gameData = checked.gameData();
 
-        Server.sessions.remove(session);
+        Server.rooms.leave(session);
 
 
-        String username = Server.authDAO.getAuth(command.getAuthToken()).username();
+        String username = checked.username();
         boolean isWhite = username.equals(gameData.whiteUsername());
         boolean isBlack = username.equals(gameData.blackUsername());
 
@@ -263,7 +323,8 @@ public class WebSocketHandler {
                     gameData.gameName(),
                     gameData.game()
             );
-            Server.gameDAO.updateGame(gameData);
+            Server.writes.updateGame(gameData);
+            actor.update(gameData);
         } else if (isBlack) {
             gameData = new GameData(
                     gameData.gameID(),
@@ -272,10 +333,10 @@ public class WebSocketHandler {
                     gameData.gameName(),
                     gameData.game()
             );
-            Server.gameDAO.updateGame(gameData);
+            Server.writes.updateGame(gameData);
+            actor.update(gameData);
         }
 
-        String u = Server.authDAO.getAuth(command.getAuthToken()).username();
-        notifyAll(gameData.gameID(), String.format("%s has left the game", u));
+        notifyAll(gameData.gameID(), String.format("%s has left the game", username));
     }
 }
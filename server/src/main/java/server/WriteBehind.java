@@ -0,0 +1,357 @@
+package server;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import dataaccess.DataAccess;
+import dataaccess.DataAccessException;
+import model.GameData;
+
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Write-behind queue for game changes. The game actors keep the live games
+ * in memory and hand their changes to this queue, which returns at once and
+ * stores them from a background thread at most {@code delayMillis} later,
+ * in the order they were queued.
+ * <p>
+ * Snapshot updates queued back to back for the same game are merged into
+ * the last one, and runs of updates to different games are stored in one
+ * batch. Moves are never merged, since each is a row of the move log.
+ * <p>
+ * A write that fails while the database is unreachable stays queued,
+ * together with the writes queued after it for the same game, and the
+ * background flushes retry the game with a growing backoff for as long as
+ * it takes. A write that cannot succeed on retry, such as one for a missing
+ * game or a move whose ply is already stored, is dropped with every other
+ * write queued for its game. The game is then {@link #isFenced fenced}:
+ * new writes for it are refused until {@link #resume} is called, and
+ * {@code onDropped} is told the game so its owner can reload the stored
+ * state and resume.
+ * <p>
+ * Anything that reads games straight from the database should call
+ * {@link #flush} first and check {@link #isPending} afterwards.
+ * {@link #close} flushes whatever is left.
+ */
+public class WriteBehind implements AutoCloseable {
+
+    private static final long DEFAULT_DELAY_MILLIS = 50;
+    private static final int FLUSH_AT = 256;
+    private static final long FIRST_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+    private interface Write {
+        int gameID();
+
+        void apply(DataAccess dao) throws DataAccessException;
+    }
+
+    private record MoveWrite(int gameID, ChessMove move, ChessGame game) implements Write {
+        @Override
+        public void apply(DataAccess dao) throws DataAccessException {
+            dao.recordMove(gameID, move, game);
+        }
+    }
+
+    private record UpdateWrite(GameData game) implements Write {
+        @Override
+        public int gameID() {
+            return game.gameID();
+        }
+
+        @Override
+        public void apply(DataAccess dao) throws DataAccessException {
+            dao.updateGame(game);
+        }
+    }
+
+    /*
+     * A game's writes held back in one flush, in order, and why: a failure,
+     * or null when the game was only waiting out its backoff
+     */
+    private static final class Stalled {
+        final List<Write> writes = new ArrayList<>();
+        Exception cause;
+    }
+
+    private final DataAccess dao;
+    private final IntConsumer onDropped;
+    private final ScheduledExecutorService flusher;
+
+    // guarded by this
+    private List<Write> pending = new ArrayList<>();
+    private final Map<Integer, Integer> pendingPerGame = new HashMap<>();
+    private final Map<Integer, Integer> failures = new HashMap<>();
+    private final Map<Integer, Long> retryAt = new HashMap<>();
+    private final Set<Integer> fenced = new HashSet<>();
+
+    // held while a batch is written, so flush() returns only once it is stored
+    private final Object flushLock = new Object();
+
+    public WriteBehind(DataAccess dao, long delayMillis, IntConsumer onDropped) {
+        this.dao = dao;
+        this.onDropped = onDropped;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "game-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, delayMillis, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public WriteBehind(DataAccess dao, IntConsumer onDropped) {
+        this(dao, DEFAULT_DELAY_MILLIS, onDropped);
+    }
+
+    /**
+     * Queues a move for {@link DataAccess#recordMove}
+     *
+     * @param game the game as it is after the move; a copy is queued
+     * @throws IllegalStateException if the game is fenced
+     */
+    public void recordMove(int gameID, ChessMove move, ChessGame game) {
+        enqueue(new MoveWrite(gameID, move, new ChessGame(game)));
+    }
+
+    /**
+     * Queues a snapshot for {@link DataAccess#updateGame}; a copy of the
+     * game is queued
+     *
+     * @throws IllegalStateException if the game is fenced
+     */
+    public void updateGame(GameData game) {
+        ChessGame copy = game.game() == null ? null : new ChessGame(game.game());
+        enqueue(new UpdateWrite(new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(),
+                game.gameName(), copy)));
+    }
+
+    /**
+     * @return true if changes to the game are still waiting to be stored
+     */
+    public synchronized boolean isPending(int gameID) {
+        return pendingPerGame.containsKey(gameID);
+    }
+
+    /**
+     * @return true if the game's changes were dropped and it takes no new
+     * writes until {@link #resume}
+     */
+    public synchronized boolean isFenced(int gameID) {
+        return fenced.contains(gameID);
+    }
+
+    /**
+     * Lets a fenced game take writes again, once its owner has reloaded the
+     * stored state
+     */
+    public synchronized void resume(int gameID) {
+        fenced.remove(gameID);
+    }
+
+    /**
+     * Tries to store everything queued so far before returning, including
+     * games that are backing off. Writes that fail stay queued.
+     */
+    public void flush() {
+        flush(true);
+    }
+
+    /**
+     * Drops everything queued, for when the database is cleared
+     */
+    public void discard() {
+        synchronized (flushLock) {
+            synchronized (this) {
+                pending = new ArrayList<>();
+                pendingPerGame.clear();
+                failures.clear();
+                retryAt.clear();
+                fenced.clear();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private synchronized void enqueue(Write write) {
+        if (fenced.contains(write.gameID())) {
+            throw new IllegalStateException("Changes to game " + write.gameID() + " were lost; reload it first");
+        }
+        int last = pending.size() - 1;
+        if (write instanceof UpdateWrite && last >= 0 && pending.get(last) instanceof UpdateWrite previous
+                && previous.gameID() == write.gameID()) {
+            pending.set(last, write);
+            return;
+        }
+        pending.add(write);
+        pendingPerGame.merge(write.gameID(), 1, Integer::sum);
+        if (pending.size() == FLUSH_AT) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    private void flush(boolean force) {
+        synchronized (flushLock) {
+            List<Write> batch;
+            // games whose writes must wait; a forced flush tries them anyway
+            Map<Integer, Stalled> stalled = new HashMap<>();
+            synchronized (this) {
+                batch = pending;
+                pending = new ArrayList<>();
+                long now = System.nanoTime();
+                for (var entry : retryAt.entrySet()) {
+                    if (!force && now - entry.getValue() < 0) {
+                        stalled.put(entry.getKey(), new Stalled());
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch, stalled);
+            }
+        }
+    }
+
+    private void write(List<Write> batch, Map<Integer, Stalled> stalled) {
+        // consecutive snapshot updates, stored together in one round trip
+        List<UpdateWrite> updates = new ArrayList<>();
+        for (Write write : batch) {
+            if (write instanceof UpdateWrite update && !stalled.containsKey(write.gameID())) {
+                updates.add(update);
+                continue;
+            }
+            writeUpdates(updates, stalled);
+            apply(write, stalled);
+        }
+        writeUpdates(updates, stalled);
+        for (var entry : stalled.entrySet()) {
+            if (!entry.getValue().writes.isEmpty()) {
+                settle(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void writeUpdates(List<UpdateWrite> updates, Map<Integer, Stalled> stalled) {
+        if (updates.size() > 1) {
+            try {
+                dao.updateGames(updates.stream().map(UpdateWrite::game).toList());
+                updates.forEach(update -> written(update.gameID()));
+                updates.clear();
+                return;
+            } catch (DataAccessException | RuntimeException ex) {
+                // nothing was stored; find the failing game by storing them one at a time
+            }
+        }
+        for (UpdateWrite update : updates) {
+            apply(update, stalled);
+        }
+        updates.clear();
+    }
+
+    private void apply(Write write, Map<Integer, Stalled> stalled) {
+        Stalled held = stalled.get(write.gameID());
+        if (held != null) {
+            held.writes.add(write);
+            return;
+        }
+        try {
+            write.apply(dao);
+            written(write.gameID());
+        } catch (DataAccessException | RuntimeException ex) {
+            System.err.println("Could not store game " + write.gameID() + ": " + ex.getMessage());
+            held = new Stalled();
+            held.cause = ex;
+            held.writes.add(write);
+            stalled.put(write.gameID(), held);
+        }
+    }
+
+    private synchronized void written(int gameID) {
+        failures.remove(gameID);
+        retryAt.remove(gameID);
+        pendingPerGame.computeIfPresent(gameID, (id, count) -> count == 1 ? null : count - 1);
+    }
+
+    /*
+     * Puts a game's held writes back in the queue, or drops them if their
+     * failure will not go away by itself
+     */
+    private void settle(int gameID, Stalled held) {
+        if (held.cause != null && !canSucceedOnRetry(held.cause)) {
+            drop(gameID, held);
+            return;
+        }
+        synchronized (this) {
+            if (held.cause != null) {
+                int failed = failures.merge(gameID, 1, Integer::sum);
+                long backoff = Math.min(FIRST_BACKOFF_MILLIS << Math.min(failed - 1, 16), MAX_BACKOFF_MILLIS);
+                retryAt.put(gameID, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff));
+            }
+            // ahead of anything queued since, to keep the game's writes in order
+            held.writes.addAll(pending);
+            pending = held.writes;
+        }
+    }
+
+    private void drop(int gameID, Stalled held) {
+        int count = held.writes.size();
+        synchronized (this) {
+            // later writes build on the dropped ones, so they go too
+            int before = pending.size();
+            pending.removeIf(write -> write.gameID() == gameID);
+            count += before - pending.size();
+            pendingPerGame.remove(gameID);
+            failures.remove(gameID);
+            retryAt.remove(gameID);
+            fenced.add(gameID);
+        }
+        System.err.println("Dropped " + count + " unstored changes to game " + gameID + ": "
+                + held.cause.getMessage());
+        onDropped.accept(gameID);
+    }
+
+    /*
+     * Lost connections, timeouts and deadlocks pass; a missing game or a
+     * constraint, syntax or data error fails the same way every time
+     */
+    static boolean canSucceedOnRetry(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLIntegrityConstraintViolationException || cause instanceof SQLSyntaxErrorException
+                    || cause instanceof SQLDataException) {
+                return false;
+            }
+            if (cause instanceof SQLException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush(false);
+        } catch (RuntimeException ex) {
+            System.err.println("Game write-behind failed: " + ex.getMessage());
+        }
+    }
+}
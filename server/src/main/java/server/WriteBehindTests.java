@@ -0,0 +1,150 @@
+package server;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.DataAccessException;
+import dataaccess.InMemoryDAO;
+import model.GameData;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+public class WriteBehindTests {
+
+    private InMemoryDAO dao;
+    private WriteBehind writes;
+    private final List<Integer> dropped = new ArrayList<>();
+
+    @BeforeEach
+    void setup() throws DataAccessException {
+        dao = new InMemoryDAO();
+        dao.createGame(new GameData(1, "white", "black", "game", new ChessGame()));
+        // long delay so only explicit flushes write
+        writes = new WriteBehind(dao, 60_000, dropped::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writes.close();
+    }
+
+    @Test
+    void movesWaitForFlush() throws Exception {
+        ChessGame game = new ChessGame();
+        ChessMove e4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        ChessMove e5 = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+        game.makeMove(e4);
+        writes.recordMove(1, e4, game);
+        game.makeMove(e5);
+        writes.recordMove(1, e5, game);
+
+        assertTrue(writes.isPending(1));
+        assertTrue(dao.getMoves(1).isEmpty());
+
+        writes.flush();
+
+        assertFalse(writes.isPending(1));
+        assertEquals(List.of(e4, e5), dao.getMoves(1));
+        assertEquals(game, dao.getGame(1).game());
+    }
+
+    @Test
+    void queuedGamesAreCopies() throws Exception {
+        ChessGame game = new ChessGame();
+        ChessMove e4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(e4);
+        writes.recordMove(1, e4, game);
+        game.makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+
+        writes.flush();
+
+        assertEquals(ChessGame.TeamColor.BLACK, dao.getGame(1).game().getTeamTurn(),
+                "The stored game should be the one queued, not the live one");
+    }
+
+    @Test
+    void updatesMergeAndCloseFlushes() throws Exception {
+        writes.updateGame(new GameData(1, "first", "black", "game", new ChessGame()));
+        writes.updateGame(new GameData(1, "second", "black", "game", new ChessGame()));
+
+        writes.close();
+
+        assertFalse(writes.isPending(1));
+        assertEquals("second", dao.getGame(1).whiteUsername());
+    }
+
+    @Test
+    void updatesToSeveralGamesAreStoredTogether() throws Exception {
+        dao.createGame(new GameData(2, "white", "black", "other", new ChessGame()));
+        writes.updateGame(new GameData(1, "first", "black", "game", new ChessGame()));
+        writes.updateGame(new GameData(2, "second", "black", "other", new ChessGame()));
+        // no such game, so the batch fails and the others are stored one at a time
+        writes.updateGame(new GameData(3, "third", "black", "missing", new ChessGame()));
+
+        writes.flush();
+
+        assertFalse(writes.isPending(1));
+        assertFalse(writes.isPending(2));
+        assertFalse(writes.isPending(3), "An update to a missing game can never succeed");
+        assertEquals(List.of(3), dropped);
+        assertEquals("first", dao.getGame(1).whiteUsername());
+        assertEquals("second", dao.getGame(2).whiteUsername());
+    }
+
+    @Test
+    void transientFailuresAreRetried() throws Exception {
+        AtomicInteger outages = new AtomicInteger(2);
+        InMemoryDAO flaky = new InMemoryDAO() {
+            @Override
+            public void updateGame(GameData game) throws DataAccessException {
+                if (outages.getAndDecrement() > 0) {
+                    throw new DataAccessException("failed to get connection", new SQLException("Connection refused"));
+                }
+                super.updateGame(game);
+            }
+        };
+        flaky.createGame(new GameData(1, "white", "black", "game", new ChessGame()));
+        try (WriteBehind flakyWrites = new WriteBehind(flaky, 60_000, dropped::add)) {
+            flakyWrites.updateGame(new GameData(1, "first", "black", "game", new ChessGame()));
+
+            flakyWrites.flush();
+            flakyWrites.flush();
+            assertTrue(flakyWrites.isPending(1), "The write should still be retried");
+            assertTrue(dropped.isEmpty());
+
+            flakyWrites.flush();
+            assertFalse(flakyWrites.isPending(1));
+            assertEquals("first", flaky.getGame(1).whiteUsername());
+        }
+    }
+
+    @Test
+    void droppedGameIsFencedUntilResumed() throws Exception {
+        ChessGame game = new ChessGame();
+        ChessMove e4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(e4);
+        // no such game, so the move can never be stored
+        writes.recordMove(5, e4, game);
+        writes.updateGame(new GameData(5, "white", "black", "missing", game));
+
+        writes.flush();
+
+        assertEquals(List.of(5), dropped);
+        assertFalse(writes.isPending(5));
+        assertTrue(writes.isFenced(5));
+        assertThrows(IllegalStateException.class, () -> writes.recordMove(5, e4, game));
+
+        writes.resume(5);
+        dao.createGame(new GameData(5, "white", "black", "found", new ChessGame()));
+        writes.updateGame(new GameData(5, "again", "black", "found", game));
+        writes.flush();
+        assertEquals("again", dao.getGame(5).whiteUsername());
+    }
+}
@@ -6,17 +6,29 @@ import model.*;
 import org.mindrot.jbcrypt.BCrypt;
 
 
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 
 public class UserService {
 
     private final DataAccess dao;
+    private final List<Consumer<String>> logoutListeners = new CopyOnWriteArrayList<>();
 
     public UserService(DataAccess dao){
         this. dao = dao;
     }
 
+    /**
+     * Registers a callback that gets each auth token after it is logged
+     * out, so anything holding on to the token can drop it
+     */
+    public void addLogoutListener(Consumer<String> listener) {
+        logoutListeners.add(listener);
+    }
+
     public RegisterResult register(RegisterRequest req) throws DataAccessException{
         if (req.username() == null || req.password() == null || req.email() == null){
             throw new DataAccessException("Bad request");
@@ -60,5 +72,8 @@ public class UserService {
             throw new DataAccessException("Unauthorized");
         }
         dao.deleteAuth(req.authToken());
+        for (Consumer<String> listener : logoutListeners) {
+            listener.accept(req.authToken());
+        }
     }
 }
@@ -6,6 +6,9 @@ import dataaccess.MySqlDataAccess;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class UserServiceTests {
 
     private MySqlDataAccess dao;
@@ -60,5 +63,16 @@ public class UserServiceTests {
         assertNull(dao.getAuth(result.authToken()));
     }
 
+    @Test
+    void logoutNotifiesListeners() throws DataAccessException{
+        List<String> revoked = new ArrayList<>();
+        service.addLogoutListener(revoked::add);
+        RegisterResult result = service.register(new RegisterRequest("lamar", "pw", "hell@.com"));
+
+        service.logout(new LogoutRequest(result.authToken()));
+
+        assertEquals(List.of(result.authToken()), revoked);
+    }
+
 
 }
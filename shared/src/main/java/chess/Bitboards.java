@@ -0,0 +1,262 @@
+package chess;
+
+/**
+ * Square numbering and precomputed attack masks used by the bitboard code.
+ * <p>
+ * Squares are numbered 0..63 with a1 = 0, h1 = 7 and h8 = 63, so square
+ * {@code sq} sits on row {@code sq / 8 + 1} and column {@code sq % 8 + 1}.
+ * Bit {@code sq} of a {@code long} is set when that square is in the set.
+ */
+final class Bitboards {
+
+    static final long FILE_A = 0x0101010101010101L;
+    static final long FILE_H = FILE_A << 7;
+    static final long RANK_1 = 0xFFL;
+    static final long RANK_8 = RANK_1 << 56;
+    // b1, h1, a2, ... g8: the squares whose row + column is odd
+    static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+
+    static final long[] KNIGHT_ATTACKS = new long[64];
+    static final long[] KING_ATTACKS = new long[64];
+
+    /**
+     * Squares a pawn of the given color (indexed by {@code TeamColor.ordinal()})
+     * standing on a square attacks diagonally.
+     */
+    static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    static {
+        int[][] knightOffsets = {
+                {2, 1}, {2, -1}, {-2, 1}, {-2, -1},
+                {1, 2}, {1, -2}, {-1, 2}, {-1, -2}
+        };
+        int[][] kingOffsets = {
+                {0, 1}, {0, -1}, {1, 0}, {-1, 0},
+                {1, 1}, {1, -1}, {-1, 1}, {-1, -1}
+        };
+
+        for (int sq = 0; sq < 64; sq++) {
+            KNIGHT_ATTACKS[sq] = offsetMask(sq, knightOffsets);
+            KING_ATTACKS[sq] = offsetMask(sq, kingOffsets);
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][sq] = offsetMask(sq, new int[][]{{1, -1}, {1, 1}});
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][sq] = offsetMask(sq, new int[][]{{-1, -1}, {-1, 1}});
+        }
+    }
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {0, 1}, {-1, 0}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {-1, -1}, {-1, 1}, {1, -1}};
+
+    /*
+     * Magic multipliers for the sliding attack tables. For every square,
+     * ((occupied & MASK) * MAGIC) >>> SHIFT maps each relevant blocker
+     * configuration to a slot holding its attack set with no harmful
+     * collisions. The numbers were found offline with a seeded search.
+     */
+    private static final long[] ROOK_MAGICS = {
+            0x1080004008801020L, 0x0840092002C03000L, 0x1900200010400900L, 0x0880100008000480L,
+            0x4200100420080200L, 0x8100020100080400L, 0x0200040110886200L, 0x0200008040220411L,
+            0x0404800084400220L, 0x0000401000402000L, 0x0086001081220440L, 0x0408800800100280L,
+            0x000A001201040820L, 0x8848800200840080L, 0x4001000100040200L, 0x0442000102105084L,
+            0x9080010020804100L, 0x0040404000201009L, 0x0000808010002009L, 0x2200090021D00100L,
+            0x0008008008040080L, 0x0004004002010040L, 0x0011040008015042L, 0x00000A0001768104L,
+            0x0000800080204009L, 0x2010004140002001L, 0x9800200280100080L, 0x1000100080080080L,
+            0x0442000A00049020L, 0x2100040080020080L, 0x0800120400900148L, 0x0010040A00128541L,
+            0x2800804000800030L, 0x1010002000400041L, 0x4000200011004100L, 0x0610008410800800L,
+            0x0400802402800800L, 0xC100020080800400L, 0x0002000802000401L, 0x0182085882000401L,
+            0x0220204000808000L, 0x2860100040024022L, 0x0001002004110040L, 0x99101042000A0020L,
+            0x0004080004008080L, 0x0010040002008080L, 0x2012004881020004L, 0x8300842444820011L,
+            0x0088403882010200L, 0x0820400080210100L, 0x0110910040A00300L, 0x0801100280080480L,
+            0x0242009008200600L, 0x1002000489500200L, 0x0040800200010080L, 0x0091800041000080L,
+            0x0000209300488001L, 0x04C1002414824001L, 0x020020000B001041L, 0x7000100004200901L,
+            0x8002002004100802L, 0x30010002084C0007L, 0x0888221800813004L, 0x4000002840840112L
+    };
+
+    private static final long[] BISHOP_MAGICS = {
+            0x10102002004A1420L, 0x8020040400584008L, 0x10510800811201C8L, 0x5204042080000088L,
+            0x2204106880000002L, 0x1401042004000000L, 0x0400880410042004L, 0x0028208200A02020L,
+            0x1500241990010E00L, 0x8001200182020A40L, 0x40004101030B0000L, 0x8002041042000100L,
+            0x4010011041020038L, 0x0000010421044000L, 0x1500210808020A00L, 0x8000088400880520L,
+            0x0405004010040100L, 0x1005823210040108L, 0x2708008102040011L, 0x4048200404009100L,
+            0x0018104101400024L, 0x0003000601190101L, 0x8004803108491000L, 0x8014241200820800L,
+            0x0006E080100C3040L, 0x0501044A11041800L, 0x9020300008004045L, 0x0894080000220040L,
+            0x1001010083104000L, 0x5004030040900080L, 0x000400422C012400L, 0x0002128698404812L,
+            0x1010108404900440L, 0x0928021182084100L, 0x2006080409020024L, 0x1010202020180080L,
+            0xA010008200202200L, 0x2098015100019004L, 0x0002041440810811L, 0x802A02020000B098L,
+            0x0009015090004060L, 0x4000821082081001L, 0x0100210040420800L, 0x0800004010488A00L,
+            0x2000081104004040L, 0x4C8E029015000082L, 0x0420340322224842L, 0x1298260043400210L,
+            0x0000822802400008L, 0x00008A0101600000L, 0x3040003412080021L, 0x3040290220884800L,
+            0x4A1500401041004AL, 0x8010200282020781L, 0x0020203142209091L, 0x0070300600902110L,
+            0x0040808800B62048L, 0x0000810400C44420L, 0x00080400440C0441L, 0x8340080020840411L,
+            0x0000000104208200L, 0x0000800810D00080L, 0x0400530411080200L, 0x4040702400932244L
+    };
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE;
+    private static final long[] BISHOP_TABLE;
+
+    static {
+        ROOK_TABLE = buildSliderTable(ROOK_DIRECTIONS, ROOK_MAGICS, ROOK_MASKS, ROOK_SHIFTS, ROOK_OFFSETS);
+        BISHOP_TABLE = buildSliderTable(BISHOP_DIRECTIONS, BISHOP_MAGICS, BISHOP_MASKS, BISHOP_SHIFTS, BISHOP_OFFSETS);
+    }
+
+    /*
+     * LINE[a][b]: the whole rank, file or diagonal through two aligned
+     * squares (edge to edge), BETWEEN[a][b]: the squares strictly between
+     * them. Both are empty when the squares are not aligned.
+     */
+    static final long[][] LINE = new long[64][64];
+    static final long[][] BETWEEN = new long[64][64];
+
+    static {
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b) {
+                    continue;
+                }
+                if ((rookAttacks(a, 0L) & bit(b)) != 0) {
+                    LINE[a][b] = (rookAttacks(a, 0L) & rookAttacks(b, 0L)) | bit(a) | bit(b);
+                    BETWEEN[a][b] = rookAttacks(a, bit(b)) & rookAttacks(b, bit(a));
+                } else if ((bishopAttacks(a, 0L) & bit(b)) != 0) {
+                    LINE[a][b] = (bishopAttacks(a, 0L) & bishopAttacks(b, 0L)) | bit(a) | bit(b);
+                    BETWEEN[a][b] = bishopAttacks(a, bit(b)) & bishopAttacks(b, bit(a));
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    /**
+     * @return squares a rook on {@code sq} attacks given the occupied squares,
+     * including the first blocker in each direction
+     */
+    static long rookAttacks(int sq, long occupied) {
+        int slot = (int) (((occupied & ROOK_MASKS[sq]) * ROOK_MAGICS[sq]) >>> ROOK_SHIFTS[sq]);
+        return ROOK_TABLE[ROOK_OFFSETS[sq] + slot];
+    }
+
+    /**
+     * @return squares a bishop on {@code sq} attacks given the occupied squares,
+     * including the first blocker in each direction
+     */
+    static long bishopAttacks(int sq, long occupied) {
+        int slot = (int) (((occupied & BISHOP_MASKS[sq]) * BISHOP_MAGICS[sq]) >>> BISHOP_SHIFTS[sq]);
+        return BISHOP_TABLE[BISHOP_OFFSETS[sq] + slot];
+    }
+
+    static long queenAttacks(int sq, long occupied) {
+        return rookAttacks(sq, occupied) | bishopAttacks(sq, occupied);
+    }
+
+    private static long[] buildSliderTable(int[][] directions, long[] magics, long[] masks,
+                                           int[] shifts, int[] offsets) {
+        int size = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            masks[sq] = relevantBlockers(sq, directions);
+            shifts[sq] = 64 - Long.bitCount(masks[sq]);
+            offsets[sq] = size;
+            size += 1 << Long.bitCount(masks[sq]);
+        }
+
+        long[] table = new long[size];
+        for (int sq = 0; sq < 64; sq++) {
+            // walk every subset of the mask (Carry-Rippler trick)
+            long subset = 0L;
+            do {
+                int slot = (int) ((subset * magics[sq]) >>> shifts[sq]);
+                table[offsets[sq] + slot] = slidingAttacks(sq, subset, directions);
+                subset = (subset - masks[sq]) & masks[sq];
+            } while (subset != 0);
+        }
+        return table;
+    }
+
+    /*
+     * Squares whose occupancy can change a slider's attack set: every ray
+     * square except the last one before the board edge.
+     */
+    private static long relevantBlockers(int sq, int[][] directions) {
+        long mask = 0L;
+        for (int[] dir : directions) {
+            int r = row(sq) + dir[0];
+            int c = column(sq) + dir[1];
+            while (onBoard(r + dir[0], c + dir[1])) {
+                mask |= bit(square(r, c));
+                r += dir[0];
+                c += dir[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long slidingAttacks(int sq, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] dir : directions) {
+            int r = row(sq) + dir[0];
+            int c = column(sq) + dir[1];
+            while (onBoard(r, c)) {
+                long b = bit(square(r, c));
+                attacks |= b;
+                if ((occupied & b) != 0) {
+                    break;
+                }
+                r += dir[0];
+                c += dir[1];
+            }
+        }
+        return attacks;
+    }
+
+    private static long offsetMask(int sq, int[][] offsets) {
+        long mask = 0L;
+        for (int[] off : offsets) {
+            int r = row(sq) + off[0];
+            int c = column(sq) + off[1];
+            if (onBoard(r, c)) {
+                mask |= bit(square(r, c));
+            }
+        }
+        return mask;
+    }
+
+    static boolean onBoard(int row, int col) {
+        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+    }
+
+    static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    static int row(int sq) {
+        return (sq >>> 3) + 1;
+    }
+
+    static int column(int sq) {
+        return (sq & 7) + 1;
+    }
+
+    static long bit(int sq) {
+        return 1L << sq;
+    }
+
+    static ChessPosition position(int sq) {
+        return ChessPosition.of(sq);
+    }
+
+    /**
+     * @return index of a (color, type) pair into per-piece bitboard arrays, 0..11
+     */
+    static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+}
@@ -1,8 +1,5 @@
 package chess;
 import java.util.Arrays;
-import java.util.Map;
-import java.util.HashMap;
-import java.util.Objects;
 
 
 /**
@@ -15,10 +12,75 @@ public class ChessBoard {
 
     private ChessPiece[][] pieces = new ChessPiece[8][8];
 
+    /*
+     * Bitboard index over the pieces array: one long per (color, type) pair
+     * plus one occupancy mask per color. It is derived state, so it is not
+     * serialized; boards built by Gson rebuild it on first use.
+     */
+    private transient long[] pieceBoards = new long[12];
+    private transient long[] colorBoards = new long[2];
+    private transient int[] kingSquares = {-1, -1};
+    // Zobrist key of the piece placement alone, see Zobrist
+    private transient long pieceKey;
+    private transient boolean indexed;
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL_CASTLING = 15;
+
+    // castling rights that survive a move touching each square
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, ALL_CASTLING);
+        CASTLING_MASK[Bitboards.square(1, 1)] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[Bitboards.square(1, 8)] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[Bitboards.square(1, 5)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[Bitboards.square(8, 1)] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASK[Bitboards.square(8, 8)] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[Bitboards.square(8, 5)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+    }
+
+    /*
+     * Position state beyond piece placement. Castling rights start out
+     * granted; a right is lost once its king or rook leaves (or is captured
+     * on) its home square.
+     */
+    private int castlingRights = ALL_CASTLING;
+    private int enPassantSquare = -1;
+    private int halfmoveClock;
+
+    /*
+     * One record per move applied with makeMove, newest last. Layout:
+     * bits 0-31 packed move, 32-35 captured piece (pieceIndex + 1, 0 for
+     * none), 36-39 castling rights, 40-46 en passant square + 1 and 47-62
+     * the halfmove clock, all as they were before the move.
+     */
+    private transient long[] undoStack = new long[64];
+    private transient int undoCount;
+
     public ChessBoard() {
 
     }
 
+    /**
+     * Creates an independent copy of a board's pieces and position state.
+     * The copy starts with no move history, so it cannot unmake moves that
+     * were made on the original.
+     *
+     * @param other the board to copy
+     */
+    public ChessBoard(ChessBoard other) {
+        for (int r = 0; r < 8; r++) {
+            pieces[r] = other.pieces[r].clone();
+        }
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        halfmoveClock = other.halfmoveClock;
+    }
+
     /**
      * Adds a chess piece to the chessboard
      *
@@ -26,7 +88,7 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        pieces[position.getRow()-1][position.getColumn()-1] = piece;
+        setPiece(Bitboards.square(position), piece);
     }
 
     /**
@@ -47,56 +109,413 @@ public class ChessBoard {
      */
     public void resetBoard() {
 
-        pieces = new ChessPiece[8][8];;
+        pieces = new ChessPiece[8][8];
+        indexed = false;
+        castlingRights = ALL_CASTLING;
+        enPassantSquare = -1;
+        halfmoveClock = 0;
+        undoCount = 0;
 
         //white: non-pawn pieces
 
-        addPiece(new ChessPosition(1, 1),
-                new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(1, 2),
-                new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(1, 3),
-                new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(1, 4),
-                new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(1, 5),
-                new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(1, 6),
-                new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(1, 7),
-                new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(1, 8),
-                new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(1, 1),
+                ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(1, 2),
+                ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(1, 3),
+                ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(1, 4),
+                ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        addPiece(ChessPosition.of(1, 5),
+                ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        addPiece(ChessPosition.of(1, 6),
+                ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(1, 7),
+                ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(1, 8),
+                ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
 
         //white: pawn pieces
         for (int c = 1; c <= 8; c++) {
-            addPiece(new ChessPosition(2, c),
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(2, c),
+                    ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
         }
 
         //black: non-pawn pieces
-        addPiece(new ChessPosition(8, 1),
-                new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(8, 2),
-                new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8, 3),
-                new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8, 4),
-                new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(8, 5),
-                new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(8, 6),
-                new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8, 7),
-                new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8, 8),
-                new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(8, 1),
+                ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(8, 2),
+                ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(8, 3),
+                ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(8, 4),
+                ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        addPiece(ChessPosition.of(8, 5),
+                ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        addPiece(ChessPosition.of(8, 6),
+                ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(8, 7),
+                ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(8, 8),
+                ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
 
         //black: pawn pieces
         for (int c = 1; c <= 8; c++) {
-            addPiece(new ChessPosition(7, c),
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(7, c),
+                    ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        }
+    }
+
+    /**
+     * Applies a move without checking that it is legal. The move can be taken
+     * back with {@link #unmakeMove()}. A king moving two squares castles, and
+     * a pawn moving onto the en passant square captures en passant.
+     *
+     * @param move the move to apply; a piece must stand on its start position
+     */
+    public void makeMove(ChessMove move) {
+        int packed = PackedMove.fromChessMove(move);
+        int from = PackedMove.from(packed);
+        int to = PackedMove.to(packed);
+        ChessPiece.PieceType type = getPiece(from).getPieceType();
+        if (type == ChessPiece.PieceType.PAWN && Math.abs(to - from) == 16) {
+            packed |= PackedMove.FLAG_DOUBLE_PUSH;
+        } else if (type == ChessPiece.PieceType.PAWN && to == enPassantSquare
+                && Bitboards.column(from) != Bitboards.column(to)) {
+            packed |= PackedMove.FLAG_EN_PASSANT;
+        } else if (type == ChessPiece.PieceType.KING && Math.abs(to - from) == 2) {
+            packed |= PackedMove.FLAG_CASTLE;
+        }
+        makeMove(packed);
+    }
+
+    /**
+     * Takes back the most recent move applied with makeMove
+     *
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void unmakeMove() {
+        if (undoCount == 0) {
+            throw new IllegalStateException("No move to unmake");
+        }
+        long undo = undoStack[--undoCount];
+        int move = (int) undo;
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+
+        ChessPiece moved = getPiece(to);
+        if (PackedMove.promotion(move) != null) {
+            moved = ChessPiece.of(moved.getTeamColor(), ChessPiece.PieceType.PAWN);
+        }
+        int captured = (int) (undo >>> 32) & 0xF;
+        ChessPiece capturedPiece = captured == 0 ? null : ChessPiece.of(captured - 1);
+        if (PackedMove.hasFlag(move, PackedMove.FLAG_EN_PASSANT)) {
+            setPiece(to, null);
+            setPiece(enPassantVictim(moved, to), capturedPiece);
+        } else {
+            setPiece(to, capturedPiece);
+        }
+        setPiece(from, moved);
+        if (PackedMove.hasFlag(move, PackedMove.FLAG_CASTLE)) {
+            int rookFrom = castlingRookSquare(from, to);
+            int rookTo = (from + to) / 2;
+            setPiece(rookFrom, getPiece(rookTo));
+            setPiece(rookTo, null);
+        }
+
+        castlingRights = (int) (undo >>> 36) & 0xF;
+        enPassantSquare = ((int) (undo >>> 40) & 0x7F) - 1;
+        halfmoveClock = (int) (undo >>> 47) & 0xFFFF;
+    }
+
+    void makeMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessPiece mover = getPiece(from);
+        boolean enPassant = PackedMove.hasFlag(move, PackedMove.FLAG_EN_PASSANT);
+        int victim = enPassant ? enPassantVictim(mover, to) : to;
+        ChessPiece captured = getPiece(victim);
+
+        pushUndo(move, captured);
+
+        ChessPiece placed = mover;
+        ChessPiece.PieceType promotion = PackedMove.promotion(move);
+        if (promotion != null) {
+            placed = ChessPiece.of(mover.getTeamColor(), promotion);
+        }
+        setPiece(from, null);
+        if (enPassant) {
+            setPiece(victim, null);
+        }
+        setPiece(to, placed);
+        if (PackedMove.hasFlag(move, PackedMove.FLAG_CASTLE)) {
+            int rookFrom = castlingRookSquare(from, to);
+            setPiece((from + to) / 2, getPiece(rookFrom));
+            setPiece(rookFrom, null);
+        }
+
+        boolean pawnMove = mover.getPieceType() == ChessPiece.PieceType.PAWN;
+        halfmoveClock = (pawnMove || captured != null) ? 0 : halfmoveClock + 1;
+        enPassantSquare = -1;
+        if (PackedMove.hasFlag(move, PackedMove.FLAG_DOUBLE_PUSH)) {
+            // only record the square when a pawn can take on it, so positions
+            // that differ in name only hash the same
+            int passed = (from + to) / 2;
+            long takers = Bitboards.PAWN_ATTACKS[mover.getTeamColor().ordinal()][passed]
+                    & pieces(MoveGenerator.opponent(mover.getTeamColor()), ChessPiece.PieceType.PAWN);
+            if (takers != 0) {
+                enPassantSquare = passed;
+            }
+        }
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+    }
+
+    /**
+     * @return square of the pawn taken when {@code mover} captures en passant on {@code to}
+     */
+    private static int enPassantVictim(ChessPiece mover, int to) {
+        return mover.getTeamColor() == ChessGame.TeamColor.WHITE ? to - 8 : to + 8;
+    }
+
+    /**
+     * @return starting square of the rook that castles with a king moving from {@code from} to {@code to}
+     */
+    private static int castlingRookSquare(int from, int to) {
+        return to > from ? from + 3 : from - 4;
+    }
+
+    private void pushUndo(int move, ChessPiece captured) {
+        if (undoStack == null) {
+            undoStack = new long[64];
+        } else if (undoCount == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoCount * 2);
+        }
+        long capturedCode = captured == null ? 0
+                : Bitboards.pieceIndex(captured.getTeamColor(), captured.getPieceType()) + 1;
+        undoStack[undoCount++] = (move & 0xFFFFFFFFL)
+                | capturedCode << 32
+                | (long) castlingRights << 36
+                | (long) (enPassantSquare + 1) << 40
+                | (long) Math.min(halfmoveClock, 0xFFFF) << 47;
+    }
+
+    /**
+     * Gets a 64-bit Zobrist key for the position: piece placement, castling
+     * rights and en passant square. It is maintained incrementally, so this
+     * is a couple of table lookups. Whose turn it is is not part of the board;
+     * see {@link ChessGame#positionKey()}.
+     *
+     * @return key that is equal for equal positions and almost surely
+     * different for different ones
+     */
+    public long positionKey() {
+        long key = pieceKey() ^ Zobrist.CASTLING[castlingRights];
+        if (enPassantSquare >= 0) {
+            key ^= Zobrist.EN_PASSANT_FILE[enPassantSquare & 7];
+        }
+        return key;
+    }
+
+    /**
+     * @return Zobrist key of the piece placement only, consistent with equals
+     */
+    long pieceKey() {
+        ensureIndexed();
+        return pieceKey;
+    }
+
+    /**
+     * @return the castling rights still held, as a mask of the *_KINGSIDE and
+     * *_QUEENSIDE constants
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * @return square index the en passant capture lands on, or -1 if the last
+     * move was not a double pawn push that an enemy pawn can take
+     */
+    int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    /**
+     * @return plies since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Replaces the position state that is not part of the piece placement,
+     * for boards set up from a saved position
+     */
+    void setState(int castlingRights, int enPassantSquare, int halfmoveClock) {
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    /**
+     * @return bitboard of the squares holding pieces of the given color and type
+     */
+    long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        ensureIndexed();
+        return pieceBoards[Bitboards.pieceIndex(color, type)];
+    }
+
+    /**
+     * @return bitboard of the squares holding pieces of the given color
+     */
+    long occupancy(ChessGame.TeamColor color) {
+        ensureIndexed();
+        return colorBoards[color.ordinal()];
+    }
+
+    /**
+     * @return bitboard of every occupied square
+     */
+    long occupied() {
+        ensureIndexed();
+        return colorBoards[0] | colorBoards[1];
+    }
+
+    /**
+     * @return square index of the given team's king, or -1 if it has none
+     */
+    int kingSquare(ChessGame.TeamColor color) {
+        ensureIndexed();
+        return kingSquares[color.ordinal()];
+    }
+
+    /**
+     * Looks outward from {@code sq} with each piece type's attack pattern and
+     * keeps the squares where a matching piece of color {@code by} stands
+     *
+     * @param occupied squares treated as blockers for sliding pieces
+     * @return bitboard of the pieces of color {@code by} attacking {@code sq}
+     */
+    long attackersTo(int sq, ChessGame.TeamColor by, long occupied) {
+        ensureIndexed();
+        int base = Bitboards.pieceIndex(by, ChessPiece.PieceType.KING);
+        long queens = pieceBoards[base + ChessPiece.PieceType.QUEEN.ordinal()];
+        long rookLike = pieceBoards[base + ChessPiece.PieceType.ROOK.ordinal()] | queens;
+        long bishopLike = pieceBoards[base + ChessPiece.PieceType.BISHOP.ordinal()] | queens;
+
+        return (Bitboards.PAWN_ATTACKS[1 - by.ordinal()][sq] & pieceBoards[base + ChessPiece.PieceType.PAWN.ordinal()])
+                | (Bitboards.KNIGHT_ATTACKS[sq] & pieceBoards[base + ChessPiece.PieceType.KNIGHT.ordinal()])
+                | (Bitboards.KING_ATTACKS[sq] & pieceBoards[base])
+                | (Bitboards.rookAttacks(sq, occupied) & rookLike)
+                | (Bitboards.bishopAttacks(sq, occupied) & bishopLike);
+    }
+
+    /**
+     * @return true if any piece of color {@code by} attacks the square
+     */
+    boolean isSquareAttacked(int sq, ChessGame.TeamColor by) {
+        return attackersTo(sq, by, occupied()) != 0;
+    }
+
+    /**
+     * @return true if the given team has a king and it is attacked
+     */
+    boolean isInCheck(ChessGame.TeamColor color) {
+        int king = kingSquare(color);
+        return king >= 0 && isSquareAttacked(king, MoveGenerator.opponent(color));
+    }
+
+    /**
+     * @return true if neither side has enough material left to checkmate:
+     * kings with at most one knight or bishop between them, or with only
+     * bishops that all stand on squares of one color
+     */
+    boolean hasInsufficientMaterial() {
+        long heavy = 0L;
+        long knights = 0L;
+        long bishops = 0L;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            heavy |= pieces(color, ChessPiece.PieceType.PAWN) | pieces(color, ChessPiece.PieceType.ROOK)
+                    | pieces(color, ChessPiece.PieceType.QUEEN);
+            knights |= pieces(color, ChessPiece.PieceType.KNIGHT);
+            bishops |= pieces(color, ChessPiece.PieceType.BISHOP);
+        }
+        if (heavy != 0) {
+            return false;
+        }
+        if (Long.bitCount(knights | bishops) <= 1) {
+            return true;
+        }
+        return knights == 0
+                && ((bishops & Bitboards.LIGHT_SQUARES) == 0 || (bishops & ~Bitboards.LIGHT_SQUARES) == 0);
+    }
+
+    /**
+     * Gets the piece on a square by its bitboard index (see {@link Bitboards})
+     */
+    ChessPiece getPiece(int sq) {
+        return pieces[sq >>> 3][sq & 7];
+    }
+
+    /**
+     * Places a piece (or null) on a square by its bitboard index, keeping the
+     * bitboard index in step with the pieces array
+     */
+    void setPiece(int sq, ChessPiece piece) {
+        ensureIndexed();
+        ChessPiece old = getPiece(sq);
+        if (old != null) {
+            unindex(old, sq);
+        }
+        pieces[sq >>> 3][sq & 7] = piece;
+        if (piece != null) {
+            index(piece, sq);
+        }
+    }
+
+    private void index(ChessPiece piece, int sq) {
+        long bit = Bitboards.bit(sq);
+        pieceBoards[Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType())] |= bit;
+        colorBoards[piece.getTeamColor().ordinal()] |= bit;
+        pieceKey ^= Zobrist.piece(piece, sq);
+        if (piece.getPieceType() == ChessPiece.PieceType.KING) {
+            kingSquares[piece.getTeamColor().ordinal()] = sq;
+        }
+    }
+
+    private void unindex(ChessPiece piece, int sq) {
+        long bit = Bitboards.bit(sq);
+        int pieceIndex = Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+        pieceBoards[pieceIndex] &= ~bit;
+        colorBoards[piece.getTeamColor().ordinal()] &= ~bit;
+        pieceKey ^= Zobrist.piece(piece, sq);
+        if (piece.getPieceType() == ChessPiece.PieceType.KING && kingSquares[piece.getTeamColor().ordinal()] == sq) {
+            // fall back to any other king of that color a test board may hold
+            long kings = pieceBoards[pieceIndex];
+            kingSquares[piece.getTeamColor().ordinal()] = kings == 0 ? -1 : Long.numberOfTrailingZeros(kings);
+        }
+    }
+
+    private void ensureIndexed() {
+        if (indexed) {
+            return;
+        }
+        if (pieceBoards == null) {
+            pieceBoards = new long[12];
+            colorBoards = new long[2];
+            kingSquares = new int[2];
+        }
+        Arrays.fill(pieceBoards, 0L);
+        Arrays.fill(colorBoards, 0L);
+        Arrays.fill(kingSquares, -1);
+        pieceKey = 0L;
+        for (int sq = 0; sq < 64; sq++) {
+            ChessPiece piece = getPiece(sq);
+            if (piece != null) {
+                index(piece, sq);
+            }
         }
+        indexed = true;
     }
 
     @Override
@@ -105,11 +524,11 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Arrays.deepEquals(pieces, that.pieces);
+        return pieceKey() == that.pieceKey() && Arrays.deepEquals(pieces, that.pieces);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(pieces);
+        return Long.hashCode(pieceKey());
     }
 }
@@ -1,7 +1,9 @@
 package chess;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -16,6 +18,37 @@ public class ChessGame {
     private ChessBoard board;
     private TeamColor teamTurn;
 
+    /*
+     * Position keys of the earlier positions since the last capture or pawn
+     * move; only those can repeat. The array is replaced rather than
+     * modified, so the previous one can be pushed on historyStack for
+     * unmakeMove and shared by copies. It is serialized with the game so
+     * repetitions are still seen after a reload.
+     */
+    private long[] history = NO_HISTORY;
+    // starts at 1 and goes up after each black move, as in FEN
+    private int fullmoveNumber = 1;
+    private transient long[][] historyStack = new long[16][];
+    private transient int historyCount;
+
+    private static final long[] NO_HISTORY = new long[0];
+    private static final int FIFTY_MOVE_PLIES = 100;
+
+    // reusable packed-move buffer for validMoves and makeMove
+    private transient int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+
+    /*
+     * Status and legal moves of the side to move, worked out once per
+     * position. Moves through this class clear statusValid; statusKey also
+     * catches pieces changed directly on the board.
+     */
+    private transient boolean statusValid;
+    private transient long statusKey;
+    private transient GameStatus status;
+    private transient int[] statusMoves = new int[MoveGenerator.MAX_MOVES];
+    private transient int statusMoveCount;
+    private transient List<ChessMove> statusMoveList;
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
@@ -27,7 +60,8 @@ public class ChessGame {
 
     @Override
     public int hashCode() {
-        return Objects.hash(board, teamTurn);
+        long key = board == null ? 0L : board.pieceKey();
+        return Long.hashCode(teamTurn == TeamColor.BLACK ? key ^ Zobrist.BLACK_TO_MOVE : key);
     }
 
     @Override
@@ -44,6 +78,20 @@ public class ChessGame {
         setTeamTurn(TeamColor.WHITE);
     }
 
+    /**
+     * Creates an independent copy of a game, for example to explore moves on
+     * another thread. The copy cannot unmake moves made before it was taken.
+     *
+     * @param other the game to copy
+     */
+    public ChessGame(ChessGame other) {
+        board = new ChessBoard(other.board);
+        teamTurn = other.teamTurn;
+        history = other.history;
+        fullmoveNumber = other.fullmoveNumber;
+        gameOver = other.gameOver;
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -59,6 +107,7 @@ public class ChessGame {
      */
     public void setTeamTurn(TeamColor team) {
         teamTurn = team;
+        statusValid = false;
     }
 
     /**
@@ -69,6 +118,25 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Where the game stands for the side to move. DRAW covers insufficient
+     * material, the fifty-move rule and threefold repetition.
+     */
+    public enum GameStatus {
+        ONGOING,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        DRAW;
+
+        /**
+         * @return true if no more moves can be played
+         */
+        public boolean isOver() {
+            return this == CHECKMATE || this == STALEMATE || this == DRAW;
+        }
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -82,29 +150,74 @@ public class ChessGame {
             return new ArrayList<>();
         }
 
-        Collection<ChessMove> raw = piece.pieceMoves(board, startPosition);
-
+        int from = PackedMove.square(startPosition);
         List<ChessMove> legal = new ArrayList<>();
-        for (ChessMove m : raw){
-            ChessPiece destBefore = board.getPiece(m.getEndPosition());
-            board.addPiece(startPosition, null);
-            ChessPiece moved = piece;
-
-            if (m.getPromotionPiece() != null) {
-                moved = new ChessPiece(piece.getTeamColor(), m.getPromotionPiece());
+        if (piece.getTeamColor() == teamTurn) {
+            evaluate();
+            for (int i = 0; i < statusMoveCount; i++) {
+                if (PackedMove.from(statusMoves[i]) == from) {
+                    legal.add(PackedMove.toChessMove(statusMoves[i]));
+                }
             }
-            board.addPiece(m.getEndPosition(), moved);
+            return legal;
+        }
 
-            boolean inCheck = isInCheck(piece.getTeamColor());
+        int count = LegalMoveGenerator.generate(board, piece.getTeamColor(), Bitboards.bit(from), moveBuffer);
+        for (int i = 0; i < count; i++) {
+            legal.add(PackedMove.toChessMove(moveBuffer[i]));
+        }
+        return legal;
+    }
 
-            board.addPiece(startPosition, piece);
-            board.addPiece(m.getEndPosition(), destBefore);
-            if (!inCheck){
-                legal.add(m);
+    /**
+     * Gets every legal move of the side to move. The list is computed once
+     * per position and shared between callers, so it cannot be modified.
+     *
+     * @return the legal moves, in generation order
+     */
+    public List<ChessMove> getLegalMoves() {
+        evaluate();
+        if (statusMoveList == null) {
+            List<ChessMove> moves = new ArrayList<>(statusMoveCount);
+            for (int i = 0; i < statusMoveCount; i++) {
+                moves.add(PackedMove.toChessMove(statusMoves[i]));
             }
+            statusMoveList = Collections.unmodifiableList(moves);
+        }
+        return statusMoveList;
+    }
+
+    /**
+     * Gets the status of the side to move. It is worked out together with
+     * the legal moves the first time either is asked for in a position, so
+     * repeated lookups are cheap.
+     *
+     * @return the game status
+     */
+    public GameStatus getStatus() {
+        evaluate();
+        return status;
+    }
 
+    private void evaluate() {
+        long key = positionKey();
+        if (statusValid && statusKey == key) {
+            return;
         }
-        return legal;
+
+        statusMoveCount = LegalMoveGenerator.generate(board, teamTurn, statusMoves);
+        statusMoveList = null;
+        boolean check = board.isInCheck(teamTurn);
+        if (statusMoveCount == 0) {
+            status = check ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        } else if (board.hasInsufficientMaterial() || board.getHalfmoveClock() >= FIFTY_MOVE_PLIES
+                || repetitions(key) >= 2) {
+            status = GameStatus.DRAW;
+        } else {
+            status = check ? GameStatus.CHECK : GameStatus.ONGOING;
+        }
+        statusKey = key;
+        statusValid = true;
     }
 
     /**
@@ -114,37 +227,71 @@ public class ChessGame {
      * @throws InvalidMoveException if move is invalid
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
-
-
-
-        Collection<ChessMove> options = validMoves(move.getStartPosition());
-
-        if (options == null || !options.contains(move) || board.getPiece(move.getStartPosition()).getTeamColor() != teamTurn) {
+        ChessPiece mover = board.getPiece(move.getStartPosition());
+        if (mover == null || mover.getTeamColor() != teamTurn) {
             throw new InvalidMoveException("Illegal move: " + move);
         }
 
-        ChessPiece mover = board.getPiece(move.getStartPosition());
-        board.addPiece(move.getStartPosition(), null);
-        ChessPiece placed = mover;
-
-        if (move.getPromotionPiece() != null) {
-            placed = new ChessPiece(mover.getTeamColor(), move.getPromotionPiece());
+        int wanted = PackedMove.fromChessMove(move);
+        evaluate();
+        for (int i = 0; i < statusMoveCount; i++) {
+            if (PackedMove.sameMove(statusMoves[i], wanted)) {
+                long key = positionKey();
+                board.makeMove(statusMoves[i]);
+                if (teamTurn == TeamColor.BLACK) {
+                    fullmoveNumber++;
+                }
+                teamTurn = MoveGenerator.opponent(teamTurn);
+                pushHistory(key);
+                statusValid = false;
+                return;
+            }
         }
-        board.addPiece(move.getEndPosition(), placed);
-
-        teamTurn = (teamTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+        throw new InvalidMoveException("Illegal move: " + move);
+    }
 
+    /**
+     * Takes back the last move made with makeMove, including the change of turn
+     *
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void unmakeMove() {
+        board.unmakeMove();
+        teamTurn = MoveGenerator.opponent(teamTurn);
+        if (teamTurn == TeamColor.BLACK && fullmoveNumber > 1) {
+            fullmoveNumber--;
+        }
+        history = historyCount > 0 ? historyStack[--historyCount] : NO_HISTORY;
+        statusValid = false;
+    }
 
+    private void pushHistory(long previousKey) {
+        if (historyStack == null) {
+            historyStack = new long[16][];
+        } else if (historyCount == historyStack.length) {
+            historyStack = Arrays.copyOf(historyStack, historyCount * 2);
+        }
+        historyStack[historyCount++] = history;
 
+        if (board.getHalfmoveClock() == 0) {
+            history = NO_HISTORY;
+        } else {
+            history = Arrays.copyOf(history, history.length + 1);
+            history[history.length - 1] = previousKey;
+        }
     }
 
-    private boolean attacksKing(ChessPiece attacker, ChessPosition from, ChessPosition kingPos) {
-        for (ChessMove move : attacker.pieceMoves(board, from)) {
-            if (move.getEndPosition().equals(kingPos)) {
-                return true;
+    /**
+     * @return how many times the position with this key occurred before
+     */
+    private int repetitions(long key) {
+        int count = 0;
+        for (long earlier : history) {
+            if (earlier == key) {
+                count++;
             }
         }
-        return false;
+        return count;
     }
 
     /**
@@ -155,45 +302,7 @@ public class ChessGame {
      */
 
     public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingP = null;
-
-        for (int r = 1; r <= 8 && kingP == null; r++) {
-            for (int c = 1; c <= 8; c++) {
-                ChessPosition p = new ChessPosition(r, c);
-                ChessPiece occupant = board.getPiece(p);
-
-                if (occupant != null &&
-                        occupant.getTeamColor() == teamColor &&
-                        occupant.getPieceType() == ChessPiece.PieceType.KING) {
-                    kingP = p;
-                    break;
-                }
-            }
-        }
-
-        if (kingP == null) {
-            return false;
-        }
-
-        for (int r = 1; r <= 8; r++) {
-            for (int c = 1; c <= 8; c++) {
-                ChessPosition from = new ChessPosition(r, c);
-                ChessPiece attacker = board.getPiece(from);
-
-                if (attacker == null) {
-                    continue;
-                }
-                if (attacker.getTeamColor() == teamColor) {
-                    continue;
-                }
-
-                if (attacksKing(attacker, from, kingP)) {
-                    return true;
-                }
-            }
-        }
-
-        return false;
+        return board.isInCheck(teamColor);
     }
 
 
@@ -205,23 +314,13 @@ public class ChessGame {
      */
 
     public boolean hasNoValidMoves(TeamColor teamColor){
-        for (int r = 1; r <= 8; r++){
-            for (int c = 1; c <= 8; c++){
-                ChessPosition pos = new ChessPosition(r,c);
-                ChessPiece p = board.getPiece(pos);
-
-                if (p != null && p.getTeamColor() == teamColor){
-                    Collection<ChessMove> moves = validMoves(pos);
-                    if (moves != null && !moves.isEmpty()){
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+        return !LegalMoveGenerator.hasLegalMove(board, teamColor, moveBuffer);
     }
 
     public boolean isInCheckmate(TeamColor teamColor) {
+        if (teamColor == teamTurn) {
+            return getStatus() == GameStatus.CHECKMATE;
+        }
         if (!isInCheck(teamColor)) {
             return false;
         }
@@ -239,10 +338,44 @@ public class ChessGame {
         if (teamColor != teamTurn) {
             return false;
         }
-        if (isInCheck(teamColor)) {
-            return false;
-        }
-        return hasNoValidMoves(teamColor);
+        return getStatus() == GameStatus.STALEMATE;
+    }
+
+    /**
+     * Gets a 64-bit Zobrist key for the game position: the board's
+     * {@link ChessBoard#positionKey()} plus whose turn it is. Suitable for
+     * transposition tables, repetition checks and position caches.
+     *
+     * @return the position key
+     */
+    public long positionKey() {
+        long key = board.positionKey();
+        return teamTurn == TeamColor.BLACK ? key ^ Zobrist.BLACK_TO_MOVE : key;
+    }
+
+    /**
+     * @return the number of the current full move, starting at 1 and going
+     * up after each move by black
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    /**
+     * @return keys of the positions since the last capture or pawn move; the
+     * array is shared, so callers must not modify it
+     */
+    long[] history() {
+        return history;
+    }
+
+    void setHistory(long[] history) {
+        this.history = history;
+        statusValid = false;
     }
 
     /**
@@ -253,6 +386,9 @@ public class ChessGame {
     public void setBoard(ChessBoard board) {
 
         this.board = board;
+        history = NO_HISTORY;
+        historyCount = 0;
+        statusValid = false;
     }
 
     /**
@@ -0,0 +1,408 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streaming Gson type adapters for the chess model. They write a compact
+ * form built on chess notation instead of Gson's reflective field dump:
+ * <pre>
+ * ChessPosition  "e4"
+ * ChessPiece     "N" (FEN letter, uppercase for white)
+ * ChessMove      "e7e8q" (start, end and optional promotion letter)
+ * ChessBoard     "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR KQkq - 0"
+ *                (the FEN fields without side to move and fullmove number)
+ * ChessGame      {"fen": "...", "history": ["1f2e..."], "gameOver": false}
+ * </pre>
+ * A game is about 100 bytes instead of several kilobytes. Repetition keys
+ * are written as hex strings because JSON numbers lose 64-bit precision in
+ * many readers, JavaScript included.
+ * <p>
+ * Every reader also accepts the reflective object form written before these
+ * adapters existed, so stored games and hand-written requests keep working.
+ * Positions and moves off the board have no notation and are written in that
+ * object form. Reading never goes through reflection, and positions, pieces
+ * and moves resolve to their shared instances ({@link ChessPosition#of},
+ * {@link ChessPiece#of}, {@link ChessMove#of}).
+ */
+public final class ChessJson {
+
+    private ChessJson() {
+    }
+
+    /**
+     * Registers the chess adapters on a builder
+     *
+     * @return the same builder, for chaining
+     */
+    public static GsonBuilder register(GsonBuilder builder) {
+        return builder
+                .registerTypeAdapter(ChessPosition.class, new PositionAdapter().nullSafe())
+                .registerTypeAdapter(ChessPiece.class, new PieceAdapter().nullSafe())
+                .registerTypeAdapter(ChessMove.class, new MoveAdapter().nullSafe())
+                .registerTypeAdapter(ChessBoard.class, new BoardAdapter().nullSafe())
+                .registerTypeAdapter(ChessGame.class, new GameAdapter().nullSafe());
+    }
+
+    /**
+     * @return a Gson with only the chess adapters registered
+     */
+    public static Gson gson() {
+        return register(new GsonBuilder()).create();
+    }
+
+    private static final class PositionAdapter extends TypeAdapter<ChessPosition> {
+
+        @Override
+        public void write(JsonWriter out, ChessPosition position) throws IOException {
+            if (onBoard(position)) {
+                out.value(square(position));
+                return;
+            }
+            out.beginObject();
+            out.name("row").value(position.getRow());
+            out.name("col").value(position.getColumn());
+            out.endObject();
+        }
+
+        @Override
+        public ChessPosition read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.STRING) {
+                String text = in.nextString();
+                if (text.length() != 2) {
+                    throw new IOException("Bad square '" + text + "' at " + in.getPath());
+                }
+                return position(text, 0, in);
+            }
+            int row = 0;
+            int col = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "row" -> row = in.nextInt();
+                    case "col" -> col = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return ChessPosition.of(row, col);
+        }
+    }
+
+    private static final class PieceAdapter extends TypeAdapter<ChessPiece> {
+
+        @Override
+        public void write(JsonWriter out, ChessPiece piece) throws IOException {
+            out.value(String.valueOf(Fen.symbol(piece)));
+        }
+
+        @Override
+        public ChessPiece read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.STRING) {
+                String text = in.nextString();
+                if (text.length() != 1) {
+                    throw new IOException("Bad piece '" + text + "' at " + in.getPath());
+                }
+                char c = text.charAt(0);
+                ChessGame.TeamColor color = Character.isUpperCase(c)
+                        ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                return ChessPiece.of(color, pieceType(c, in));
+            }
+            ChessGame.TeamColor color = null;
+            ChessPiece.PieceType type = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "pieceColor" -> color = ChessGame.TeamColor.valueOf(in.nextString());
+                    case "type" -> type = ChessPiece.PieceType.valueOf(in.nextString());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (color == null || type == null) {
+                throw new IOException("Chess piece needs both a pieceColor and a type at " + in.getPath());
+            }
+            return ChessPiece.of(color, type);
+        }
+    }
+
+    private static final class MoveAdapter extends TypeAdapter<ChessMove> {
+
+        private final TypeAdapter<ChessPosition> positions = new PositionAdapter().nullSafe();
+
+        @Override
+        public void write(JsonWriter out, ChessMove move) throws IOException {
+            ChessPosition start = move.getStartPosition();
+            ChessPosition end = move.getEndPosition();
+            ChessPiece.PieceType promotion = move.getPromotionPiece();
+            if (onBoard(start) && onBoard(end)) {
+                String text = square(start) + square(end);
+                if (promotion != null) {
+                    text += Fen.symbol(ChessPiece.of(ChessGame.TeamColor.BLACK, promotion));
+                }
+                out.value(text);
+                return;
+            }
+            out.beginObject();
+            out.name("startPosition");
+            positions.write(out, start);
+            out.name("endPosition");
+            positions.write(out, end);
+            if (promotion != null) {
+                out.name("promotionPiece").value(promotion.name());
+            } else if (out.getSerializeNulls()) {
+                out.name("promotionPiece").nullValue();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public ChessMove read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.STRING) {
+                String text = in.nextString();
+                if (text.length() != 4 && text.length() != 5) {
+                    throw new IOException("Bad move '" + text + "' at " + in.getPath());
+                }
+                ChessPiece.PieceType promotion = text.length() == 5 ? pieceType(text.charAt(4), in) : null;
+                return ChessMove.of(position(text, 0, in), position(text, 2, in), promotion);
+            }
+            ChessPosition start = null;
+            ChessPosition end = null;
+            ChessPiece.PieceType promotion = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "startPosition" -> start = positions.read(in);
+                    case "endPosition" -> end = positions.read(in);
+                    case "promotionPiece" -> promotion = readPieceType(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (start == null || end == null) {
+                return new ChessMove(start, end, promotion);
+            }
+            return ChessMove.of(start, end, promotion);
+        }
+
+        private static ChessPiece.PieceType readPieceType(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return ChessPiece.PieceType.valueOf(in.nextString());
+        }
+    }
+
+    private static final class BoardAdapter extends TypeAdapter<ChessBoard> {
+
+        private final TypeAdapter<ChessPiece> pieces = new PieceAdapter().nullSafe();
+
+        @Override
+        public void write(JsonWriter out, ChessBoard board) throws IOException {
+            out.value(Fen.boardToString(board));
+        }
+
+        @Override
+        public ChessBoard read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.STRING) {
+                String text = in.nextString();
+                try {
+                    return Fen.parseBoard(text);
+                } catch (IllegalArgumentException ex) {
+                    throw new IOException(ex.getMessage() + " at " + in.getPath(), ex);
+                }
+            }
+
+            // reflective form: pieces[row - 1][column - 1] plus the state fields
+            ChessBoard board = new ChessBoard();
+            int castlingRights = ChessBoard.ALL_CASTLING;
+            int enPassantSquare = -1;
+            int halfmoveClock = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "pieces" -> readPieces(in, board);
+                    case "castlingRights" -> castlingRights = in.nextInt() & ChessBoard.ALL_CASTLING;
+                    case "enPassantSquare" -> enPassantSquare = in.nextInt();
+                    case "halfmoveClock" -> halfmoveClock = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (enPassantSquare < -1 || enPassantSquare > 63) {
+                throw new IOException("Bad en passant square " + enPassantSquare + " at " + in.getPath());
+            }
+            board.setState(castlingRights, enPassantSquare, halfmoveClock);
+            return board;
+        }
+
+        private void readPieces(JsonReader in, ChessBoard board) throws IOException {
+            in.beginArray();
+            for (int row = 1; in.hasNext(); row++) {
+                in.beginArray();
+                for (int column = 1; in.hasNext(); column++) {
+                    ChessPiece piece = pieces.read(in);
+                    if (piece == null) {
+                        continue;
+                    }
+                    if (row > 8 || column > 8) {
+                        throw new IOException("Piece off the board at " + in.getPath());
+                    }
+                    board.setPiece(Bitboards.square(row, column), piece);
+                }
+                in.endArray();
+            }
+            in.endArray();
+        }
+    }
+
+    private static final class GameAdapter extends TypeAdapter<ChessGame> {
+
+        private final TypeAdapter<ChessBoard> boards = new BoardAdapter().nullSafe();
+
+        @Override
+        public void write(JsonWriter out, ChessGame game) throws IOException {
+            out.beginObject();
+            if (game.getBoard() != null && game.getTeamTurn() != null) {
+                out.name("fen").value(Fen.toFen(game));
+            } else {
+                // a game put together by hand may lack either; keep what it has
+                out.name("board");
+                boards.write(out, game.getBoard());
+                if (game.getTeamTurn() != null) {
+                    out.name("teamTurn").value(game.getTeamTurn().name());
+                }
+            }
+            long[] history = game.history();
+            if (history.length > 0) {
+                out.name("history").beginArray();
+                for (long key : history) {
+                    out.value(Long.toHexString(key));
+                }
+                out.endArray();
+            }
+            out.name("gameOver").value(game.isGameOver());
+            out.endObject();
+        }
+
+        @Override
+        public ChessGame read(JsonReader in) throws IOException {
+            ChessGame game = null;
+            ChessBoard board = null;
+            ChessGame.TeamColor turn = null;
+            int fullmoveNumber = 0;
+            long[] history = null;
+            boolean gameOver = false;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "fen" -> {
+                        String fen = in.nextString();
+                        try {
+                            game = Fen.parse(fen);
+                        } catch (IllegalArgumentException ex) {
+                            throw new IOException(ex.getMessage() + " at " + in.getPath(), ex);
+                        }
+                    }
+                    case "board" -> board = boards.read(in);
+                    case "teamTurn" -> turn = readTurn(in);
+                    case "fullmoveNumber" -> fullmoveNumber = in.nextInt();
+                    case "history" -> history = readHistory(in);
+                    case "gameOver" -> gameOver = in.nextBoolean();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+
+            if (game == null) {
+                // fields the JSON leaves out keep the new-game defaults, as with reflection
+                game = new ChessGame();
+                if (board != null) {
+                    game.setBoard(board);
+                }
+                if (turn != null) {
+                    game.setTeamTurn(turn);
+                }
+                if (fullmoveNumber > 0) {
+                    game.setFullmoveNumber(fullmoveNumber);
+                }
+            }
+            if (history != null) {
+                game.setHistory(history);
+            }
+            game.setGameOver(gameOver);
+            return game;
+        }
+
+        private static ChessGame.TeamColor readTurn(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return ChessGame.TeamColor.valueOf(in.nextString());
+        }
+
+        private static long[] readHistory(JsonReader in) throws IOException {
+            long[] keys = new long[8];
+            int count = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, count * 2);
+                }
+                // hex strings from these adapters, numbers from reflective JSON
+                if (in.peek() == JsonToken.STRING) {
+                    String hex = in.nextString();
+                    try {
+                        keys[count++] = Long.parseUnsignedLong(hex, 16);
+                    } catch (NumberFormatException ex) {
+                        throw new IOException("Bad position key '" + hex + "' at " + in.getPath(), ex);
+                    }
+                } else {
+                    keys[count++] = in.nextLong();
+                }
+            }
+            in.endArray();
+            return Arrays.copyOf(keys, count);
+        }
+    }
+
+    private static boolean onBoard(ChessPosition position) {
+        if (position == null) {
+            return false;
+        }
+        int row = position.getRow();
+        int column = position.getColumn();
+        return row >= 1 && row <= 8 && column >= 1 && column <= 8;
+    }
+
+    private static String square(ChessPosition position) {
+        return new String(new char[]{
+                (char) ('a' + position.getColumn() - 1), (char) ('0' + position.getRow())});
+    }
+
+    private static ChessPosition position(String text, int i, JsonReader in) throws IOException {
+        char file = text.charAt(i);
+        char rank = text.charAt(i + 1);
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            throw new IOException("Bad square '" + text.substring(i, i + 2) + "' at " + in.getPath());
+        }
+        return ChessPosition.of(rank - '0', file - 'a' + 1);
+    }
+
+    private static ChessPiece.PieceType pieceType(char c, JsonReader in) throws IOException {
+        try {
+            return Fen.pieceType(c, String.valueOf(c));
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Bad piece '" + c + "' at " + in.getPath(), ex);
+        }
+    }
+}
@@ -16,6 +16,9 @@ public class ChessMove {
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
@@ -47,6 +50,74 @@ public class ChessMove {
 
     }
 
+    /*
+     * Shared instances of every move some piece could make on an empty
+     * board (queen and knight moves, plus the four promotions of each pawn
+     * step onto the last rank), indexed by their PackedMove bits.
+     */
+    private static final ChessMove[] INTERNED = new ChessMove[PackedMove.MOVE_MASK + 1];
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT
+    };
+
+    static {
+        for (int from = 0; from < 64; from++) {
+            long targets = Bitboards.queenAttacks(from, 0L) | Bitboards.KNIGHT_ATTACKS[from];
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                intern(from, to, null);
+                if (isPromotionStep(from, to)) {
+                    for (ChessPiece.PieceType promotion : PROMOTIONS) {
+                        intern(from, to, promotion);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void intern(int from, int to, ChessPiece.PieceType promotion) {
+        INTERNED[PackedMove.of(from, to, promotion, 0)] =
+                new ChessMove(ChessPosition.of(from), ChessPosition.of(to), promotion);
+    }
+
+    private static boolean isPromotionStep(int from, int to) {
+        int fromRow = Bitboards.row(from);
+        int toRow = Bitboards.row(to);
+        boolean lastRank = (fromRow == 7 && toRow == 8) || (fromRow == 2 && toRow == 1);
+        return lastRank && Math.abs(Bitboards.column(from) - Bitboards.column(to)) <= 1;
+    }
+
+    /**
+     * @return the shared instance of the move if it is one a piece could
+     * make, otherwise a new move
+     */
+    public static ChessMove of(ChessPosition startPosition, ChessPosition endPosition,
+                               ChessPiece.PieceType promotionPiece) {
+        if (Bitboards.onBoard(startPosition.getRow(), startPosition.getColumn())
+                && Bitboards.onBoard(endPosition.getRow(), endPosition.getColumn())) {
+            ChessMove move = INTERNED[PackedMove.of(Bitboards.square(startPosition),
+                    Bitboards.square(endPosition), promotionPiece, 0)];
+            if (move != null) {
+                return move;
+            }
+        }
+        return new ChessMove(startPosition, endPosition, promotionPiece);
+    }
+
+    /**
+     * @return the shared ChessMove for a packed move, ignoring its flags
+     */
+    static ChessMove of(int packed) {
+        ChessMove move = INTERNED[packed & PackedMove.MOVE_MASK];
+        if (move != null) {
+            return move;
+        }
+        return new ChessMove(ChessPosition.of(PackedMove.from(packed)), ChessPosition.of(PackedMove.to(packed)),
+                PackedMove.promotion(packed));
+    }
+
     /**
      * @return ChessPosition of starting location
      */
@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
-import static chess.ChessPiece.PieceType.*;
 
 /**
  * Represents a single chess piece
@@ -19,6 +18,9 @@ public class ChessPiece {
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
@@ -44,6 +46,29 @@ public class ChessPiece {
         this.type = type;
     }
 
+    // one shared instance per (color, type), indexed by Bitboards.pieceIndex
+    private static final ChessPiece[] INTERNED = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                INTERNED[Bitboards.pieceIndex(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
+    /**
+     * @return the shared instance of the given piece; pieces are never
+     * modified, so it can be used anywhere a new one could
+     */
+    public static ChessPiece of(ChessGame.TeamColor color, PieceType type) {
+        return INTERNED[Bitboards.pieceIndex(color, type)];
+    }
+
+    static ChessPiece of(int pieceIndex) {
+        return INTERNED[pieceIndex];
+    }
+
     /**
      * The various different chess piece options
      */
@@ -70,6 +95,12 @@ public class ChessPiece {
         return type;
     }
 
+    /*
+     * Scratch buffer for pieceMoves; a single piece never has more than
+     * 27 moves, so one small buffer per thread is plenty.
+     */
+    private static final ThreadLocal<int[]> MOVE_BUFFER = ThreadLocal.withInitial(() -> new int[32]);
+
     /**
      * Calculates all the positions a chess piece can move to
      * Does not take into account moves that are illegal due to leaving the king in
@@ -77,147 +108,14 @@ public class ChessPiece {
      *
      * @return Collection of valid moves
      */
-    private boolean onBoard(int r, int c) {
-        return r >= 1 && r <= 8 && c >= 1 && c <= 8;
-    }
-
-    private void addSlidingMoves(ChessBoard board, ChessPosition startPos, List<ChessMove> moves, int[][] directions) {
-        for (int[] dir : directions) {
-            int row = startPos.getRow() + dir[0];
-            int col = startPos.getColumn() + dir[1];
-
-            while (onBoard(row, col)) {
-                ChessPosition nextPos = new ChessPosition(row, col);
-                ChessPiece occupant = board.getPiece(nextPos);
-
-                if (occupant == null) {
-                    moves.add(new ChessMove(startPos, nextPos, null));
-                } else {
-                    if (occupant.getTeamColor() != pieceColor) {
-                        moves.add(new ChessMove(startPos, nextPos, null));
-                    }
-                    break;
-                }
-
-                row += dir[0];
-                col += dir[1];
-            }
-        }
-    }
-
-    private void tryAddMove(ChessBoard board, ChessPosition from, int row, int col, List<ChessMove> moves) {
-        if (onBoard(row, col)) {
-            ChessPosition dest = new ChessPosition(row, col);
-            ChessPiece occupant = board.getPiece(dest);
-            if (occupant == null || occupant.getTeamColor() != pieceColor) {
-                moves.add(new ChessMove(from, dest, null));
-            }
-        }
-    }
-
-    private void generateRookMoves(ChessBoard board, ChessPosition pos, List<ChessMove> moves) {
-        int[][] dirs = {{1, 0}, {0, 1}, {-1, 0}, {0, -1}};
-        addSlidingMoves(board, pos, moves, dirs);
-    }
-
-    private void generateBishopMoves(ChessBoard board, ChessPosition pos, List<ChessMove> moves) {
-        int[][] dirs = {{1, 1}, {-1, -1}, {-1, 1}, {1, -1}};
-        addSlidingMoves(board, pos, moves, dirs);
-    }
-
-    private void generateQueenMoves(ChessBoard board, ChessPosition pos, List<ChessMove> moves) {
-        int[][] dirs = {
-                {1, 0}, {0, 1}, {-1, 0}, {0, -1},
-                {1, 1}, {-1, -1}, {-1, 1}, {1, -1}
-        };
-        addSlidingMoves(board, pos, moves, dirs);
-    }
-
-    private void generateKingMoves(ChessBoard board, ChessPosition pos, List<ChessMove> moves) {
-        int[][] offsets = {
-                {0, 1}, {0, -1}, {1, 0}, {-1, 0},
-                {1, 1}, {1, -1}, {-1, 1}, {-1, -1}
-        };
-
-        for (int[] off : offsets) {
-            tryAddMove(board, pos, pos.getRow() + off[0], pos.getColumn() + off[1], moves);
-        }
-    }
-
-
-    private void generateKnightMoves(ChessBoard board, ChessPosition pos, List<ChessMove> moves) {
-        int[][] offsets = {
-                {2, 1}, {2, -1}, {-2, 1}, {-2, -1},
-                {1, 2}, {1, -2}, {-1, 2}, {-1, -2}
-        };
-
-        for (int[] off : offsets) {
-            tryAddMove(board, pos, pos.getRow() + off[0], pos.getColumn() + off[1], moves);
-        }
-    }
-
-
-    private void generatePawnMoves(ChessBoard board, ChessPosition pos, List<ChessMove> moves) {
-        int forward = (pieceColor == ChessGame.TeamColor.WHITE) ? 1 : -1;
-        int startRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 2 : 7;
-        int promotionRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 8 : 1;
-
-        int r = pos.getRow(), c = pos.getColumn();
-        int r1 = r + forward;
-
-        ChessPosition oneAhead = new ChessPosition(r1, c);
-        if (onBoard(r1, c) && board.getPiece(oneAhead) == null) {
-            if (r1 == promotionRow) {
-                for (PieceType promo : new PieceType[]{KNIGHT, QUEEN, BISHOP, ROOK}) {
-                    moves.add(new ChessMove(pos, oneAhead, promo));
-                }
-            } else {
-                moves.add(new ChessMove(pos, oneAhead, null));
-                if (r == startRow) {
-                    int r2 = r + 2 * forward;
-                    ChessPosition twoAhead = new ChessPosition(r2, c);
-                    ChessPosition between = new ChessPosition(r + forward, c);
-                    if (onBoard(r2, c) && board.getPiece(twoAhead) == null && board.getPiece(between) == null) {
-                        moves.add(new ChessMove(pos, twoAhead, null));
-                    }
-                }
-            }
-        }
-
-        for (int dc : new int[]{-1, 1}) {
-            int nc = c + dc, nr = r + forward;
-            if (!onBoard(nr, nc)) {
-                continue;
-            }
-
-            ChessPosition target = new ChessPosition(nr, nc);
-            ChessPiece victim = board.getPiece(target);
-
-            if (victim != null && victim.getTeamColor() != pieceColor) {
-                if (nr == promotionRow) {
-                    for (PieceType promo : new PieceType[]{KNIGHT, QUEEN, BISHOP, ROOK}) {
-                        moves.add(new ChessMove(pos, target, promo));
-                    }
-                } else {
-                    moves.add(new ChessMove(pos, target, null));
-                }
-            }
-        }
-    }
-
-
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        List<ChessMove> moves = new ArrayList<>();
-
-        switch (type) {
-            case ROOK -> generateRookMoves(board, myPosition, moves);
-            case BISHOP -> generateBishopMoves(board, myPosition, moves);
-            case QUEEN -> generateQueenMoves(board, myPosition, moves);
-            case KING -> generateKingMoves(board, myPosition, moves);
-            case KNIGHT -> generateKnightMoves(board, myPosition, moves);
-            case PAWN -> generatePawnMoves(board, myPosition, moves);
-        }
+        int[] buffer = MOVE_BUFFER.get();
+        int count = MoveGenerator.generate(board, pieceColor, type, PackedMove.square(myPosition), buffer, 0);
 
+        List<ChessMove> moves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            moves.add(PackedMove.toChessMove(buffer[i]));
+        }
         return moves;
     }
-}
\ No newline at end of file
+}
@@ -14,6 +14,9 @@ public class ChessPosition {
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
@@ -39,6 +42,30 @@ public class ChessPosition {
         this.col = col;
     }
 
+    // shared instances of the 64 squares, indexed a1 = 0 .. h8 = 63
+    private static final ChessPosition[] INTERNED = new ChessPosition[64];
+
+    static {
+        for (int sq = 0; sq < INTERNED.length; sq++) {
+            INTERNED[sq] = new ChessPosition(sq / 8 + 1, sq % 8 + 1);
+        }
+    }
+
+    /**
+     * @return the shared instance of an on-board square, or a new position
+     * for coordinates off the board
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return new ChessPosition(row, col);
+        }
+        return INTERNED[(row - 1) * 8 + (col - 1)];
+    }
+
+    static ChessPosition of(int sq) {
+        return INTERNED[sq];
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
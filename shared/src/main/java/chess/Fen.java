@@ -0,0 +1,302 @@
+package chess;
+
+/**
+ * Reads and writes Forsyth-Edwards Notation, the standard one-line text form
+ * of a chess position, for example the start position:
+ * <pre>
+ * rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1
+ * </pre>
+ * The six fields are piece placement (row 8 first, uppercase for white,
+ * digits for runs of empty squares), side to move, castling rights, en
+ * passant square, halfmove clock and fullmove number.
+ * <p>
+ * The en passant square is only kept when a pawn of the side to move can
+ * capture there, matching what {@link ChessBoard} records after a double
+ * push. The two clocks may be left off; they default to 0 and 1.
+ */
+public final class Fen {
+
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private Fen() {
+    }
+
+    /**
+     * @param fen a position in FEN
+     * @return a new game at that position, with no move history
+     * @throws IllegalArgumentException if the text is not valid FEN
+     */
+    public static ChessGame parse(String fen) {
+        ChessBoard board = new ChessBoard();
+        int i = skipSpace(fen, readPlacement(fen, board));
+
+        ChessGame.TeamColor turn;
+        char side = i < fen.length() ? fen.charAt(i++) : ' ';
+        if (side == 'w') {
+            turn = ChessGame.TeamColor.WHITE;
+        } else if (side == 'b') {
+            turn = ChessGame.TeamColor.BLACK;
+        } else {
+            throw invalid(fen, "side to move must be 'w' or 'b'");
+        }
+
+        i = readState(fen, skipSpace(fen, i), board, turn);
+        int fullmoveNumber = 1;
+        if (i < fen.length()) {
+            fullmoveNumber = 0;
+            int start = i;
+            for (; i < fen.length() && fen.charAt(i) != ' '; i++) {
+                fullmoveNumber = digit(fen, i) + fullmoveNumber * 10;
+            }
+            if (i - start > 5 || fullmoveNumber == 0) {
+                throw invalid(fen, "bad fullmove number");
+            }
+            if (skipSpace(fen, i) < fen.length()) {
+                throw invalid(fen, "unexpected text after the fullmove number");
+            }
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(turn);
+        game.setFullmoveNumber(fullmoveNumber);
+        return game;
+    }
+
+    /**
+     * @return the game's position in FEN
+     */
+    public static String toFen(ChessGame game) {
+        StringBuilder fen = new StringBuilder(90);
+        appendPlacement(fen, game.getBoard());
+        fen.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w " : " b ");
+        appendState(fen, game.getBoard());
+        return fen.append(' ').append(game.getFullmoveNumber()).toString();
+    }
+
+    /**
+     * Reads a board written by {@link #boardToString}
+     *
+     * @throws IllegalArgumentException if the text is malformed
+     */
+    static ChessBoard parseBoard(String text) {
+        ChessBoard board = new ChessBoard();
+        int i = readPlacement(text, board);
+        i = readState(text, skipSpace(text, i), board, null);
+        if (i < text.length()) {
+            throw invalid(text, "unexpected text after the halfmove clock");
+        }
+        return board;
+    }
+
+    /**
+     * @return the board's FEN fields without the side to move and the
+     * fullmove number: placement, castling rights, en passant square and
+     * halfmove clock
+     */
+    static String boardToString(ChessBoard board) {
+        StringBuilder text = new StringBuilder(80);
+        appendPlacement(text, board);
+        text.append(' ');
+        appendState(text, board);
+        return text.toString();
+    }
+
+    private static int readPlacement(String fen, ChessBoard board) {
+        int row = 8;
+        int column = 1;
+        int i = 0;
+        for (; i < fen.length() && fen.charAt(i) != ' '; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                if (column != 9 || row == 1) {
+                    throw invalid(fen, "row " + row + " does not have 8 squares");
+                }
+                row--;
+                column = 1;
+            } else if (c >= '1' && c <= '8') {
+                column += c - '0';
+            } else {
+                if (column > 8) {
+                    throw invalid(fen, "row " + row + " has more than 8 squares");
+                }
+                ChessGame.TeamColor color = Character.isUpperCase(c)
+                        ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                board.setPiece(Bitboards.square(row, column), ChessPiece.of(color, pieceType(c, fen)));
+                column++;
+            }
+            if (column > 9) {
+                throw invalid(fen, "row " + row + " has more than 8 squares");
+            }
+        }
+        if (row != 1 || column != 9) {
+            throw invalid(fen, "piece placement does not cover the board");
+        }
+        return i;
+    }
+
+    /**
+     * Reads castling rights, en passant square and the optional halfmove
+     * clock into the board
+     *
+     * @param turn side to move, or null if the text does not say
+     * @return index just past the fields read and any spaces after them
+     */
+    private static int readState(String fen, int i, ChessBoard board, ChessGame.TeamColor turn) {
+        int length = fen.length();
+        int castling = 0;
+        if (i < length && fen.charAt(i) == '-') {
+            i++;
+        } else {
+            for (; i < length && fen.charAt(i) != ' '; i++) {
+                castling |= switch (fen.charAt(i)) {
+                    case 'K' -> ChessBoard.WHITE_KINGSIDE;
+                    case 'Q' -> ChessBoard.WHITE_QUEENSIDE;
+                    case 'k' -> ChessBoard.BLACK_KINGSIDE;
+                    case 'q' -> ChessBoard.BLACK_QUEENSIDE;
+                    default -> throw invalid(fen, "unknown castling right '" + fen.charAt(i) + "'");
+                };
+            }
+        }
+
+        i = skipSpace(fen, i);
+        int enPassant = -1;
+        if (i < length && fen.charAt(i) == '-') {
+            i++;
+        } else if (i + 1 < length) {
+            char file = fen.charAt(i);
+            char rank = fen.charAt(i + 1);
+            if (file < 'a' || file > 'h' || (rank != '3' && rank != '6')) {
+                throw invalid(fen, "bad en passant square");
+            }
+            // a pawn that just passed rank 6 was black's, so white is to move
+            ChessGame.TeamColor taker = rank == '6' ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+            if (turn != null && turn != taker) {
+                throw invalid(fen, "en passant square does not fit the side to move");
+            }
+            i += 2;
+            int sq = Bitboards.square(rank - '0', file - 'a' + 1);
+            long takers = Bitboards.PAWN_ATTACKS[MoveGenerator.opponent(taker).ordinal()][sq]
+                    & board.pieces(taker, ChessPiece.PieceType.PAWN);
+            if (takers != 0) {
+                enPassant = sq;
+            }
+        } else {
+            throw invalid(fen, "missing en passant square");
+        }
+
+        i = skipSpace(fen, i);
+        int halfmoveClock = 0;
+        if (i < length) {
+            int start = i;
+            for (; i < length && fen.charAt(i) != ' '; i++) {
+                halfmoveClock = digit(fen, i) + halfmoveClock * 10;
+            }
+            if (i - start > 5) {
+                throw invalid(fen, "halfmove clock is too large");
+            }
+            i = skipSpace(fen, i);
+        }
+
+        board.setState(castling, enPassant, halfmoveClock);
+        return i;
+    }
+
+    private static void appendPlacement(StringBuilder fen, ChessBoard board) {
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int column = 1; column <= 8; column++) {
+                ChessPiece piece = board.getPiece(Bitboards.square(row, column));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                fen.append(symbol(piece));
+            }
+            if (empty > 0) {
+                fen.append((char) ('0' + empty));
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+    }
+
+    private static void appendState(StringBuilder fen, ChessBoard board) {
+        int castling = board.getCastlingRights();
+        if (castling == 0) {
+            fen.append('-');
+        } else {
+            appendIf(fen, castling, ChessBoard.WHITE_KINGSIDE, 'K');
+            appendIf(fen, castling, ChessBoard.WHITE_QUEENSIDE, 'Q');
+            appendIf(fen, castling, ChessBoard.BLACK_KINGSIDE, 'k');
+            appendIf(fen, castling, ChessBoard.BLACK_QUEENSIDE, 'q');
+        }
+
+        int enPassant = board.getEnPassantSquare();
+        if (enPassant < 0) {
+            fen.append(" -");
+        } else {
+            fen.append(' ')
+                    .append((char) ('a' + Bitboards.column(enPassant) - 1))
+                    .append((char) ('0' + Bitboards.row(enPassant)));
+        }
+        fen.append(' ').append(board.getHalfmoveClock());
+    }
+
+    /**
+     * @return the FEN letter of a piece: uppercase for white, lowercase for black
+     */
+    static char symbol(ChessPiece piece) {
+        char c = switch (piece.getPieceType()) {
+            case KING -> 'k';
+            case QUEEN -> 'q';
+            case BISHOP -> 'b';
+            case KNIGHT -> 'n';
+            case ROOK -> 'r';
+            case PAWN -> 'p';
+        };
+        return piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(c) : c;
+    }
+
+    static ChessPiece.PieceType pieceType(char c, String fen) {
+        return switch (Character.toLowerCase(c)) {
+            case 'k' -> ChessPiece.PieceType.KING;
+            case 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'n' -> ChessPiece.PieceType.KNIGHT;
+            case 'r' -> ChessPiece.PieceType.ROOK;
+            case 'p' -> ChessPiece.PieceType.PAWN;
+            default -> throw invalid(fen, "unknown piece '" + c + "'");
+        };
+    }
+
+    private static void appendIf(StringBuilder fen, int rights, int right, char symbol) {
+        if ((rights & right) != 0) {
+            fen.append(symbol);
+        }
+    }
+
+    private static int skipSpace(String fen, int i) {
+        while (i < fen.length() && fen.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int digit(String fen, int i) {
+        char c = fen.charAt(i);
+        if (c < '0' || c > '9') {
+            throw invalid(fen, "expected a number");
+        }
+        return c - '0';
+    }
+
+    private static IllegalArgumentException invalid(String fen, String reason) {
+        return new IllegalArgumentException("Invalid FEN (" + reason + "): " + fen);
+    }
+}
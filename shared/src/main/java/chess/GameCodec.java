@@ -0,0 +1,172 @@
+package chess;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Compact binary form of a {@link ChessGame} for storage. The start position
+ * takes 35 bytes, against a few kilobytes of Gson JSON.
+ * <p>
+ * Layout, big-endian as written by {@link DataOutput}:
+ * <pre>
+ * u16  magic 0xC4E5
+ * u8   format version (1)
+ * u8   flags: bit 0 black to move, bit 1 game over, bits 4-7 castling rights
+ * u8   en passant square (0..63), or 0xFF for none
+ * u16  halfmove clock
+ * u16  fullmove number
+ * u64  occupancy: bit sq set when square sq holds a piece (a1 = 0, h8 = 63)
+ * u8[] one 4-bit piece index per occupied square, in square order, two per
+ *      byte with the low nibble first
+ * u16  number of repetition keys, followed by that many u64 keys
+ * </pre>
+ * The magic can never start Gson output, which always begins with '{', so
+ * readers can tell new rows from JSON ones with {@link #isEncoded}.
+ */
+public final class GameCodec {
+
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0xC4E5;
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int GAME_OVER = 2;
+    private static final int NO_EN_PASSANT = 0xFF;
+
+    private GameCodec() {
+    }
+
+    /**
+     * @return true if the data starts with this codec's header, of any version
+     */
+    public static boolean isEncoded(byte[] data) {
+        return data.length >= 3 && ((data[0] & 0xFF) << 8 | (data[1] & 0xFF)) == MAGIC;
+    }
+
+    public static byte[] encode(ChessGame game) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            write(game, new DataOutputStream(bytes));
+        } catch (IOException ex) {
+            // a byte array stream never throws
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the data is not a game in a
+     * supported version of this format
+     */
+    public static ChessGame decode(byte[] data) {
+        try {
+            return read(new DataInputStream(new ByteArrayInputStream(data)));
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Cannot decode game: " + ex.getMessage(), ex);
+        }
+    }
+
+    public static void write(ChessGame game, DataOutput out) throws IOException {
+        ChessBoard board = game.getBoard();
+        out.writeShort(MAGIC);
+        out.writeByte(VERSION);
+
+        int flags = board.getCastlingRights() << 4;
+        if (game.getTeamTurn() == ChessGame.TeamColor.BLACK) {
+            flags |= BLACK_TO_MOVE;
+        }
+        if (game.isGameOver()) {
+            flags |= GAME_OVER;
+        }
+        out.writeByte(flags);
+        int enPassant = board.getEnPassantSquare();
+        out.writeByte(enPassant < 0 ? NO_EN_PASSANT : enPassant);
+        out.writeShort(Math.min(board.getHalfmoveClock(), 0xFFFF));
+        out.writeShort(Math.min(game.getFullmoveNumber(), 0xFFFF));
+
+        long occupied = board.occupied();
+        out.writeLong(occupied);
+        int pending = -1;
+        for (long rest = occupied; rest != 0; rest &= rest - 1) {
+            ChessPiece piece = board.getPiece(Long.numberOfTrailingZeros(rest));
+            int code = Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+            if (pending < 0) {
+                pending = code;
+            } else {
+                out.writeByte(pending | code << 4);
+                pending = -1;
+            }
+        }
+        if (pending >= 0) {
+            out.writeByte(pending);
+        }
+
+        long[] history = game.history();
+        int keys = Math.min(history.length, 0xFFFF);
+        out.writeShort(keys);
+        for (int i = history.length - keys; i < history.length; i++) {
+            out.writeLong(history[i]);
+        }
+    }
+
+    /**
+     * @throws IOException if the data ends early, has the wrong header or
+     * uses a version this code does not know
+     */
+    public static ChessGame read(DataInput in) throws IOException {
+        int magic = in.readUnsignedShort();
+        if (magic != MAGIC) {
+            throw new IOException("Not an encoded game");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported game encoding version " + version);
+        }
+
+        int flags = in.readUnsignedByte();
+        int enPassant = in.readUnsignedByte();
+        if (enPassant != NO_EN_PASSANT && enPassant > 63) {
+            throw new IOException("Bad en passant square " + enPassant);
+        }
+        int halfmoveClock = in.readUnsignedShort();
+        int fullmoveNumber = in.readUnsignedShort();
+
+        ChessBoard board = new ChessBoard();
+        long occupied = in.readLong();
+        int packed = 0;
+        boolean high = false;
+        for (long rest = occupied; rest != 0; rest &= rest - 1) {
+            int code;
+            if (high) {
+                code = packed >>> 4;
+            } else {
+                packed = in.readUnsignedByte();
+                code = packed & 0xF;
+            }
+            high = !high;
+            if (code >= 12) {
+                throw new IOException("Bad piece code " + code);
+            }
+            board.setPiece(Long.numberOfTrailingZeros(rest), ChessPiece.of(code));
+        }
+        board.setState(flags >>> 4, enPassant == NO_EN_PASSANT ? -1 : enPassant, halfmoveClock);
+
+        long[] history = new long[in.readUnsignedShort()];
+        for (int i = 0; i < history.length; i++) {
+            history[i] = in.readLong();
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn((flags & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        game.setFullmoveNumber(Math.max(fullmoveNumber, 1));
+        game.setHistory(history);
+        game.setGameOver((flags & GAME_OVER) != 0);
+        return game;
+    }
+}
@@ -0,0 +1,200 @@
+package chess;
+
+/**
+ * Generates strictly legal moves as packed ints (see {@link PackedMove})
+ * without trying each move on the board.
+ * <p>
+ * Before generating, the checking pieces and the pieces pinned against the
+ * king are worked out once. Every non-king move must then land in the
+ * evasion mask (anywhere when not in check, otherwise on the checker or a
+ * square between it and the king), and a pinned piece may only move along
+ * the line through its king. King moves are tested against enemy attacks
+ * with the king lifted off the board, so it cannot hide behind itself.
+ * <p>
+ * En passant captures remove a pawn that is not on the target square, which
+ * can expose the king along a rank, so they are checked against the board
+ * as it would look after the capture. Castling is generated here rather than
+ * in {@link MoveGenerator} because it needs the same attack checks.
+ */
+public final class LegalMoveGenerator {
+
+    private LegalMoveGenerator() {
+    }
+
+    /**
+     * Writes every legal move of the given color into {@code moves}
+     *
+     * @return number of moves written
+     */
+    public static int generate(ChessBoard board, ChessGame.TeamColor color, int[] moves) {
+        return generate(board, color, -1L, moves, false);
+    }
+
+    /**
+     * Writes the legal moves of the given color's pieces that stand on
+     * {@code fromMask} into {@code moves}
+     *
+     * @return number of moves written
+     */
+    public static int generate(ChessBoard board, ChessGame.TeamColor color, long fromMask, int[] moves) {
+        return generate(board, color, fromMask, moves, false);
+    }
+
+    /**
+     * @param moves scratch buffer of at least {@link MoveGenerator#MAX_MOVES}
+     * @return true if the given color has at least one legal move
+     */
+    public static boolean hasLegalMove(ChessBoard board, ChessGame.TeamColor color, int[] moves) {
+        return generate(board, color, -1L, moves, true) > 0;
+    }
+
+    private static int generate(ChessBoard board, ChessGame.TeamColor color, long fromMask,
+                                int[] moves, boolean firstOnly) {
+        ChessGame.TeamColor them = MoveGenerator.opponent(color);
+        long own = board.occupancy(color) & fromMask;
+        long occupied = board.occupied();
+        int king = board.kingSquare(color);
+        int count = 0;
+
+        if (king < 0) {
+            // without a king nothing can be left in check
+            while (own != 0 && !(firstOnly && count > 0)) {
+                int from = Long.numberOfTrailingZeros(own);
+                own &= own - 1;
+                count = MoveGenerator.generate(board, from, moves, count);
+            }
+            return count;
+        }
+
+        long kingBit = Bitboards.bit(king);
+        if ((own & kingBit) != 0) {
+            long targets = Bitboards.KING_ATTACKS[king] & ~board.occupancy(color);
+            long enemies = board.occupancy(them);
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                if (board.attackersTo(to, them, occupied ^ kingBit) == 0) {
+                    int flags = (enemies & Bitboards.bit(to)) != 0 ? PackedMove.FLAG_CAPTURE : 0;
+                    moves[count++] = PackedMove.of(king, to) | flags;
+                    if (firstOnly) {
+                        return count;
+                    }
+                }
+            }
+            count = addCastles(board, color, king, occupied, moves, count);
+            if (firstOnly && count > 0) {
+                return count;
+            }
+            own &= ~kingBit;
+        }
+
+        long checkers = board.attackersTo(king, them, occupied);
+        if (Long.bitCount(checkers) > 1) {
+            // double check: only the king can move
+            return count;
+        }
+        long evasions = checkers == 0 ? -1L
+                : checkers | Bitboards.BETWEEN[king][Long.numberOfTrailingZeros(checkers)];
+        long pinned = pinnedPieces(board, color, king);
+
+        while (own != 0) {
+            int from = Long.numberOfTrailingZeros(own);
+            own &= own - 1;
+
+            long allowed = evasions;
+            if ((pinned & Bitboards.bit(from)) != 0) {
+                allowed &= Bitboards.LINE[king][from];
+            }
+
+            int end = MoveGenerator.generate(board, from, moves, count);
+            for (int i = count; i < end; i++) {
+                int move = moves[i];
+                boolean legal = PackedMove.hasFlag(move, PackedMove.FLAG_EN_PASSANT)
+                        ? enPassantIsLegal(board, color, king, move)
+                        : (allowed & Bitboards.bit(PackedMove.to(move))) != 0;
+                if (legal) {
+                    moves[count++] = move;
+                }
+            }
+            if (firstOnly && count > 0) {
+                return count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Appends the castling moves of a king that is on its starting square,
+     * still has the right to castle, is not in check, and would neither
+     * pass over nor land on an attacked square
+     */
+    private static int addCastles(ChessBoard board, ChessGame.TeamColor color, int king, long occupied,
+                                  int[] moves, int count) {
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        int home = white ? 4 : 60;
+        int rights = board.getCastlingRights()
+                & (white ? ChessBoard.WHITE_KINGSIDE | ChessBoard.WHITE_QUEENSIDE
+                : ChessBoard.BLACK_KINGSIDE | ChessBoard.BLACK_QUEENSIDE);
+        if (king != home || rights == 0) {
+            return count;
+        }
+        ChessGame.TeamColor them = MoveGenerator.opponent(color);
+        if (board.attackersTo(king, them, occupied) != 0) {
+            return count;
+        }
+
+        long rooks = board.pieces(color, ChessPiece.PieceType.ROOK);
+        int kingside = white ? ChessBoard.WHITE_KINGSIDE : ChessBoard.BLACK_KINGSIDE;
+        if ((rights & kingside) != 0 && (rooks & Bitboards.bit(home + 3)) != 0
+                && (occupied & Bitboards.BETWEEN[home][home + 3]) == 0
+                && board.attackersTo(home + 1, them, occupied) == 0
+                && board.attackersTo(home + 2, them, occupied) == 0) {
+            moves[count++] = PackedMove.of(home, home + 2) | PackedMove.FLAG_CASTLE;
+        }
+        int queenside = white ? ChessBoard.WHITE_QUEENSIDE : ChessBoard.BLACK_QUEENSIDE;
+        if ((rights & queenside) != 0 && (rooks & Bitboards.bit(home - 4)) != 0
+                && (occupied & Bitboards.BETWEEN[home][home - 4]) == 0
+                && board.attackersTo(home - 1, them, occupied) == 0
+                && board.attackersTo(home - 2, them, occupied) == 0) {
+            moves[count++] = PackedMove.of(home, home - 2) | PackedMove.FLAG_CASTLE;
+        }
+        return count;
+    }
+
+    /**
+     * @return true if an en passant capture leaves the king safe once both
+     * pawns have left their squares and the capturing pawn has landed
+     */
+    private static boolean enPassantIsLegal(ChessBoard board, ChessGame.TeamColor color, int king, int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int victim = to + (color == ChessGame.TeamColor.WHITE ? -8 : 8);
+        long after = (board.occupied() ^ Bitboards.bit(from) ^ Bitboards.bit(victim)) | Bitboards.bit(to);
+        long attackers = board.attackersTo(king, MoveGenerator.opponent(color), after);
+        return (attackers & ~Bitboards.bit(victim)) == 0;
+    }
+
+    /**
+     * @return bitboard of the given color's pieces that are the only piece
+     * between their king and an enemy slider aimed at it
+     */
+    static long pinnedPieces(ChessBoard board, ChessGame.TeamColor color, int king) {
+        ChessGame.TeamColor them = MoveGenerator.opponent(color);
+        long queens = board.pieces(them, ChessPiece.PieceType.QUEEN);
+        long snipers = (Bitboards.rookAttacks(king, 0L) & (board.pieces(them, ChessPiece.PieceType.ROOK) | queens))
+                | (Bitboards.bishopAttacks(king, 0L) & (board.pieces(them, ChessPiece.PieceType.BISHOP) | queens));
+        long occupied = board.occupied();
+        long own = board.occupancy(color);
+
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Bitboards.BETWEEN[king][sniper] & occupied;
+            if (Long.bitCount(blockers) == 1 && (blockers & own) != 0) {
+                pinned |= blockers;
+            }
+        }
+        return pinned;
+    }
+}
@@ -0,0 +1,130 @@
+package chess;
+
+import static chess.ChessPiece.PieceType.*;
+
+/**
+ * Generates moves as packed ints (see {@link PackedMove}) into a buffer the
+ * caller owns and reuses, so generation itself allocates nothing.
+ * <p>
+ * Generated moves are pseudo-legal: they follow the piece movement rules but
+ * may leave the mover's own king in check. Castling is left to
+ * {@link LegalMoveGenerator}, since it depends on which squares are attacked.
+ */
+public final class MoveGenerator {
+
+    /**
+     * Big enough for every pseudo-legal move of one side in any reachable position
+     */
+    public static final int MAX_MOVES = 256;
+
+    private static final ChessPiece.PieceType[] PROMOTIONS = {QUEEN, ROOK, BISHOP, KNIGHT};
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Writes the pseudo-legal moves of every piece of the given color into
+     * {@code moves}, starting at index 0
+     *
+     * @return number of moves written
+     */
+    public static int generate(ChessBoard board, ChessGame.TeamColor color, int[] moves) {
+        int count = 0;
+        long own = board.occupancy(color);
+        while (own != 0) {
+            int from = Long.numberOfTrailingZeros(own);
+            own &= own - 1;
+            count = generate(board, from, moves, count);
+        }
+        return count;
+    }
+
+    /**
+     * Appends the pseudo-legal moves of the piece on {@code from} to
+     * {@code moves}, starting at index {@code count}
+     *
+     * @return the new number of moves in the buffer
+     */
+    public static int generate(ChessBoard board, int from, int[] moves, int count) {
+        ChessPiece piece = board.getPiece(from);
+        if (piece == null) {
+            return count;
+        }
+        return generate(board, piece.getTeamColor(), piece.getPieceType(), from, moves, count);
+    }
+
+    static int generate(ChessBoard board, ChessGame.TeamColor color, ChessPiece.PieceType type,
+                        int from, int[] moves, int count) {
+        long occupied = board.occupied();
+        long notOwn = ~board.occupancy(color);
+        long enemies = board.occupancy(opponent(color));
+        return switch (type) {
+            case KING -> addTargets(from, Bitboards.KING_ATTACKS[from] & notOwn, enemies, moves, count);
+            case QUEEN -> addTargets(from, Bitboards.queenAttacks(from, occupied) & notOwn, enemies, moves, count);
+            case BISHOP -> addTargets(from, Bitboards.bishopAttacks(from, occupied) & notOwn, enemies, moves, count);
+            case KNIGHT -> addTargets(from, Bitboards.KNIGHT_ATTACKS[from] & notOwn, enemies, moves, count);
+            case ROOK -> addTargets(from, Bitboards.rookAttacks(from, occupied) & notOwn, enemies, moves, count);
+            case PAWN -> addPawnMoves(board, color, from, moves, count);
+        };
+    }
+
+    private static int addTargets(int from, long targets, long enemies, int[] moves, int count) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int flags = (enemies & Bitboards.bit(to)) != 0 ? PackedMove.FLAG_CAPTURE : 0;
+            moves[count++] = PackedMove.of(from, to) | flags;
+        }
+        return count;
+    }
+
+    private static int addPawnMoves(ChessBoard board, ChessGame.TeamColor color, int from, int[] moves, int count) {
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        int forward = white ? 8 : -8;
+        int startRow = white ? 2 : 7;
+        long promotionRank = white ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        long occupied = board.occupied();
+
+        int to = from + forward;
+        if (to >= 0 && to < 64 && (occupied & Bitboards.bit(to)) == 0) {
+            if ((promotionRank & Bitboards.bit(to)) != 0) {
+                count = addPromotions(from, to, 0, moves, count);
+            } else {
+                moves[count++] = PackedMove.of(from, to);
+                int twoAhead = to + forward;
+                if (Bitboards.row(from) == startRow && (occupied & Bitboards.bit(twoAhead)) == 0) {
+                    moves[count++] = PackedMove.of(from, twoAhead) | PackedMove.FLAG_DOUBLE_PUSH;
+                }
+            }
+        }
+
+        long attacks = Bitboards.PAWN_ATTACKS[color.ordinal()][from];
+        int enPassant = board.getEnPassantSquare();
+        if (enPassant >= 0 && Bitboards.row(enPassant) == (white ? 6 : 3) && (attacks & Bitboards.bit(enPassant)) != 0) {
+            moves[count++] = PackedMove.of(from, enPassant) | PackedMove.FLAG_CAPTURE | PackedMove.FLAG_EN_PASSANT;
+        }
+
+        long captures = attacks & board.occupancy(opponent(color));
+        while (captures != 0) {
+            int target = Long.numberOfTrailingZeros(captures);
+            captures &= captures - 1;
+            if ((promotionRank & Bitboards.bit(target)) != 0) {
+                count = addPromotions(from, target, PackedMove.FLAG_CAPTURE, moves, count);
+            } else {
+                moves[count++] = PackedMove.of(from, target) | PackedMove.FLAG_CAPTURE;
+            }
+        }
+        return count;
+    }
+
+    private static int addPromotions(int from, int to, int flags, int[] moves, int count) {
+        for (ChessPiece.PieceType promo : PROMOTIONS) {
+            moves[count++] = PackedMove.of(from, to, promo, flags);
+        }
+        return count;
+    }
+
+    static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
@@ -0,0 +1,81 @@
+package chess;
+
+/**
+ * Encodes a chess move into a single int so move lists can live in reusable
+ * {@code int[]} buffers instead of collections of {@link ChessMove} objects.
+ * <p>
+ * Layout: bits 0-5 hold the start square, bits 6-11 the end square (squares
+ * are numbered 0..63 with a1 = 0 and h8 = 63), bits 12-14 the promotion piece
+ * ({@code PieceType.ordinal() + 1}, or 0 for none) and the bits above that
+ * hold the FLAG_* values.
+ */
+public final class PackedMove {
+
+    public static final int FLAG_CAPTURE = 1 << 15;
+    public static final int FLAG_DOUBLE_PUSH = 1 << 16;
+    public static final int FLAG_EN_PASSANT = 1 << 17;
+    public static final int FLAG_CASTLE = 1 << 18;
+
+    // start, end and promotion bits: everything that identifies the move itself
+    static final int MOVE_MASK = 0x7FFF;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {
+    }
+
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int of(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int promo = promotion == null ? 0 : promotion.ordinal() + 1;
+        return from | (to << 6) | (promo << 12) | flags;
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * @return the piece a pawn promotes to, or null if this is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promo = (move >>> 12) & 0x7;
+        return promo == 0 ? null : TYPES[promo - 1];
+    }
+
+    public static boolean hasFlag(int move, int flag) {
+        return (move & flag) != 0;
+    }
+
+    /**
+     * @return true if both moves have the same start, end and promotion piece,
+     * ignoring flags
+     */
+    public static boolean sameMove(int a, int b) {
+        return (a & MOVE_MASK) == (b & MOVE_MASK);
+    }
+
+    /**
+     * @return square index (0..63) of a board position
+     */
+    public static int square(ChessPosition position) {
+        return Bitboards.square(position);
+    }
+
+    /**
+     * Packs a ChessMove without flags; compare with {@link #sameMove}
+     */
+    public static int fromChessMove(ChessMove move) {
+        return of(square(move.getStartPosition()), square(move.getEndPosition()), move.getPromotionPiece(), 0);
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return ChessMove.of(move);
+    }
+}
@@ -0,0 +1,218 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Perft spread over a {@link ForkJoinPool}. The top {@code splitPlies} plies
+ * of the tree are split into one task per move, each working on its own copy
+ * of the game. Below that, each task walks its subtree sequentially through
+ * the public ChessGame API, just like {@link Perft}.
+ * <p>
+ * All tasks share a lock-free table from (position key, depth) to node
+ * count, so a transposition reached by another move order, on any thread,
+ * is only counted once.
+ */
+public final class ParallelPerft implements AutoCloseable {
+
+    private static final int DEFAULT_SPLIT_PLIES = 2;
+    private static final int DEFAULT_TABLE_BITS = 20;
+
+    private final ForkJoinPool pool;
+    private final int splitPlies;
+    private final NodeTable table;
+
+    /**
+     * @param threads    worker threads in the pool
+     * @param splitPlies plies near the root that are split into parallel tasks
+     * @param tableBits  log2 of the transposition table size, or 0 for no table
+     */
+    public ParallelPerft(int threads, int splitPlies, int tableBits) {
+        if (threads < 1 || splitPlies < 1 || tableBits < 0 || tableBits > 30) {
+            throw new IllegalArgumentException("Bad perft settings: threads=" + threads
+                    + ", splitPlies=" + splitPlies + ", tableBits=" + tableBits);
+        }
+        this.pool = new ForkJoinPool(threads);
+        this.splitPlies = splitPlies;
+        this.table = tableBits == 0 ? null : new NodeTable(tableBits);
+    }
+
+    public ParallelPerft(int threads) {
+        this(threads, DEFAULT_SPLIT_PLIES, DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * Counts the leaf nodes {@code depth} plies below the game's position.
+     * The game itself is not modified.
+     */
+    public long perft(ChessGame game, int depth) {
+        return pool.invoke(new PerftTask(new ChessGame(game), depth, 0));
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // ForkJoin tasks are never serialized
+    @SuppressWarnings("serial")
+    private final class PerftTask extends RecursiveTask<Long> {
+
+        private final ChessGame game;
+        private final int depth;
+        private final int ply;
+
+        PerftTask(ChessGame game, int depth, int ply) {
+            this.game = game;
+            this.depth = depth;
+            this.ply = ply;
+        }
+
+        @Override
+        protected Long compute() {
+            if (ply >= splitPlies || depth <= 2) {
+                return count(game, depth);
+            }
+
+            long key = game.positionKey();
+            long cached = probe(key, depth);
+            if (cached >= 0) {
+                return cached;
+            }
+
+            List<PerftTask> children = new ArrayList<>();
+            for (ChessPosition from : Perft.ownPieces(game)) {
+                for (ChessMove move : game.validMoves(from)) {
+                    ChessGame child = new ChessGame(game);
+                    Perft.play(child, move);
+                    children.add(new PerftTask(child, depth - 1, ply + 1));
+                }
+            }
+            long nodes = 0;
+            for (PerftTask child : invokeAll(children)) {
+                nodes += child.join();
+            }
+            store(key, depth, nodes);
+            return nodes;
+        }
+    }
+
+    private long count(ChessGame game, int depth) {
+        if (depth <= 1) {
+            return Perft.perft(game, depth);
+        }
+
+        long key = game.positionKey();
+        long cached = probe(key, depth);
+        if (cached >= 0) {
+            return cached;
+        }
+
+        long nodes = 0;
+        for (ChessPosition from : Perft.ownPieces(game)) {
+            for (ChessMove move : game.validMoves(from)) {
+                Perft.play(game, move);
+                nodes += count(game, depth - 1);
+                game.unmakeMove();
+            }
+        }
+        store(key, depth, nodes);
+        return nodes;
+    }
+
+    private long probe(long key, int depth) {
+        return table == null ? -1 : table.probe(key, depth);
+    }
+
+    private void store(long key, int depth, long nodes) {
+        if (table != null) {
+            table.store(key, depth, nodes);
+        }
+    }
+
+    /**
+     * Always-replace hash table of node counts, safe to share between
+     * threads without locking. Each slot holds the entry's data and its key
+     * XORed with that data. A slot torn by two racing writers no longer
+     * decodes to a matching key, so the worst case is a miss, never a
+     * wrong count.
+     */
+    private static final class NodeTable {
+
+        private static final int DEPTH_BITS = 6;
+        private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+
+        private final AtomicLongArray slots;
+        private final int mask;
+
+        NodeTable(int bits) {
+            slots = new AtomicLongArray(2 << bits);
+            mask = (1 << bits) - 1;
+        }
+
+        long probe(long key, int depth) {
+            int slot = ((int) key & mask) << 1;
+            long data = slots.getPlain(slot + 1);
+            long check = slots.getPlain(slot);
+            if (data != 0 && (check ^ data) == key && (data & DEPTH_MASK) == depth) {
+                return data >>> DEPTH_BITS;
+            }
+            return -1;
+        }
+
+        void store(long key, int depth, long nodes) {
+            if (depth > DEPTH_MASK) {
+                return;
+            }
+            int slot = ((int) key & mask) << 1;
+            long data = nodes << DEPTH_BITS | depth;
+            slots.setPlain(slot, key ^ data);
+            slots.setPlain(slot + 1, data);
+        }
+    }
+
+    /**
+     * Runs perft on a bundled position with 1, 2, 4, ... threads up to the
+     * number of available processors and prints the speedup and parallel
+     * efficiency of each run against the single-threaded one. Each run gets
+     * a fresh table so earlier runs cannot answer for later ones.
+     * <p>
+     * Arguments: depth (default 5), position name (default "start"), and
+     * "notable" to turn the transposition table off.
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        String name = args.length > 1 ? args[1] : "start";
+        int tableBits = args.length > 2 && args[2].equals("notable") ? 0 : DEFAULT_TABLE_BITS;
+
+        Perft.Position position = Perft.SUITE.stream()
+                .filter(p -> p.name().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown position: " + name));
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        double baseline = 0;
+        for (int threads = 1; threads <= processors; threads = nextThreadCount(threads, processors)) {
+            long nodes;
+            long nanos;
+            try (ParallelPerft perft = new ParallelPerft(threads, DEFAULT_SPLIT_PLIES, tableBits)) {
+                long start = System.nanoTime();
+                nodes = perft.perft(position.game(), depth);
+                nanos = System.nanoTime() - start;
+            }
+            if (threads == 1) {
+                baseline = nanos;
+            }
+            double speedup = baseline / nanos;
+            System.out.printf("%-12s depth %d  %2d threads  %,14d nodes  %8.1f ms  speedup %5.2f  efficiency %5.1f%%%n",
+                    position.name(), depth, threads, nodes, nanos / 1e6, speedup, 100 * speedup / threads);
+        }
+    }
+
+    private static int nextThreadCount(int threads, int processors) {
+        return threads < processors && threads * 2 > processors ? processors : threads * 2;
+    }
+}
@@ -0,0 +1,154 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Perft (performance test): counts the leaf nodes of the legal move tree
+ * from a position down to a fixed depth. Comparing the counts with published
+ * values checks the move generator, and timing the walk benchmarks it.
+ * <p>
+ * The walk only uses the public ChessGame API (validMoves, makeMove and
+ * unmakeMove), so it exercises the same code paths the server does.
+ */
+public final class Perft {
+
+    /**
+     * A bundled test position in FEN with its known node counts, where
+     * {@code expected[d - 1]} is the count at depth {@code d}
+     */
+    public record Position(String name, String fen, long... expected) {
+
+        public ChessGame game() {
+            return Fen.parse(fen);
+        }
+
+        public int maxDepth() {
+            return expected.length;
+        }
+    }
+
+    /*
+     * Standard perft positions from the Chess Programming Wiki
+     */
+    public static final List<Position> SUITE = List.of(
+            new Position("start", Fen.START,
+                    20, 400, 8_902, 197_281, 4_865_609),
+            new Position("endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    14, 191, 2_812, 43_238, 674_624, 11_030_083),
+            new Position("promotions", "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1",
+                    24, 496, 9_483, 182_838, 3_605_103),
+            new Position("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    48, 2_039, 97_862, 4_085_603)
+    );
+
+    private Perft() {
+    }
+
+    /**
+     * @return number of leaf nodes {@code depth} plies below the game's position
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+
+        long nodes = 0;
+        for (ChessPosition from : ownPieces(game)) {
+            Collection<ChessMove> moves = game.validMoves(from);
+            if (depth == 1) {
+                nodes += moves.size();
+                continue;
+            }
+            for (ChessMove move : moves) {
+                play(game, move);
+                nodes += perft(game, depth - 1);
+                game.unmakeMove();
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Splits a perft count by root move, which narrows a wrong total down to
+     * the move whose subtree disagrees with a reference engine
+     *
+     * @return leaf counts keyed by root move, in generation order
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth) {
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        for (ChessPosition from : ownPieces(game)) {
+            for (ChessMove move : game.validMoves(from)) {
+                play(game, move);
+                counts.put(move, perft(game, depth - 1));
+                game.unmakeMove();
+            }
+        }
+        return counts;
+    }
+
+    static Collection<ChessPosition> ownPieces(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        Collection<ChessPosition> positions = new ArrayList<>(16);
+        for (int r = 1; r <= 8; r++) {
+            for (int c = 1; c <= 8; c++) {
+                ChessPosition pos = ChessPosition.of(r, c);
+                ChessPiece piece = board.getPiece(pos);
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    positions.add(pos);
+                }
+            }
+        }
+        return positions;
+    }
+
+    static void play(ChessGame game, ChessMove move) {
+        try {
+            game.makeMove(move);
+        } catch (InvalidMoveException ex) {
+            throw new IllegalStateException("validMoves returned an illegal move: " + move, ex);
+        }
+    }
+
+    /**
+     * Runs the bundled suite and prints node counts, timings and nodes per
+     * second. An optional argument caps the search depth.
+     */
+    public static void main(String[] args) {
+        int depthCap = args.length > 0 ? Integer.parseInt(args[0]) : Integer.MAX_VALUE;
+        long totalNodes = 0;
+        long totalNanos = 0;
+        boolean allPassed = true;
+
+        for (Position position : SUITE) {
+            for (int depth = 1; depth <= Math.min(position.maxDepth(), depthCap); depth++) {
+                ChessGame game = position.game();
+                long start = System.nanoTime();
+                long nodes = perft(game, depth);
+                long nanos = System.nanoTime() - start;
+
+                long expected = position.expected()[depth - 1];
+                boolean passed = nodes == expected;
+                allPassed &= passed;
+                totalNodes += nodes;
+                totalNanos += nanos;
+
+                System.out.printf("%-12s depth %d  %,14d nodes  %8.1f ms  %,12.0f nps  %s%n",
+                        position.name(), depth, nodes, nanos / 1e6, nodesPerSecond(nodes, nanos),
+                        passed ? "ok" : "FAIL (expected " + expected + ")");
+            }
+        }
+        System.out.printf("total %,d nodes in %.1f ms, %,.0f nps%n",
+                totalNodes, totalNanos / 1e6, nodesPerSecond(totalNodes, totalNanos));
+        if (!allPassed) {
+            System.exit(1);
+        }
+    }
+
+    private static double nodesPerSecond(long nodes, long nanos) {
+        return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+    }
+}
@@ -0,0 +1,108 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class ChessJsonTests {
+
+    private final Gson gson = ChessJson.gson();
+
+    @Test
+    @DisplayName("Factories Return Shared Instances")
+    public void factoriesIntern() {
+        Assertions.assertSame(ChessPosition.of(4, 5), ChessPosition.of(4, 5));
+        Assertions.assertSame(ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN),
+                ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        Assertions.assertSame(ChessMove.of(ChessPosition.of(7, 1), ChessPosition.of(8, 2), ChessPiece.PieceType.KNIGHT),
+                ChessMove.of(new ChessPosition(7, 1), new ChessPosition(8, 2), ChessPiece.PieceType.KNIGHT));
+
+        ChessPosition offBoard = ChessPosition.of(0, 9);
+        Assertions.assertEquals(new ChessPosition(0, 9), offBoard, "Off-board positions should still be created");
+    }
+
+    @Test
+    @DisplayName("Reads Reflective Game JSON")
+    public void readsReflectiveJson() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 4), new ChessPosition(4, 4), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 2), new ChessPosition(6, 3), null));
+        String json = new Gson().toJson(game);
+
+        ChessGame read = gson.fromJson(json, ChessGame.class);
+
+        Assertions.assertEquals(game, read);
+        Assertions.assertEquals(Fen.toFen(game), Fen.toFen(read));
+        Assertions.assertArrayEquals(game.history(), read.history(), "Repetition keys should survive");
+        Assertions.assertSame(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
+                read.getBoard().getPiece(ChessPosition.of(4, 4)), "Deserialized pieces should be shared instances");
+    }
+
+    @Test
+    @DisplayName("Game Round Trip")
+    public void gameRoundTrip() throws InvalidMoveException {
+        ChessGame game = Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 3 12");
+        game.makeMove(new ChessMove(new ChessPosition(2, 1), new ChessPosition(4, 1), null));
+        game.makeMove(new ChessMove(new ChessPosition(6, 2), new ChessPosition(5, 4), null));
+        game.makeMove(new ChessMove(new ChessPosition(5, 5), new ChessPosition(3, 4), null));
+        game.setGameOver(true);
+
+        String json = gson.toJson(game);
+        ChessGame read = gson.fromJson(json, ChessGame.class);
+
+        Assertions.assertEquals(game, read);
+        Assertions.assertEquals(Fen.toFen(game), Fen.toFen(read));
+        Assertions.assertArrayEquals(game.history(), read.history());
+        Assertions.assertTrue(read.isGameOver());
+        Assertions.assertEquals(game.getStatus(), read.getStatus());
+        Assertions.assertTrue(json.length() < new Gson().toJson(game).length() / 5,
+                "Compact JSON should be much smaller than the reflective form: " + json);
+    }
+
+    @Test
+    @DisplayName("Compact Value Forms")
+    public void compactForms() {
+        ChessPosition e4 = ChessPosition.of(4, 5);
+        ChessPiece knight = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
+        ChessMove promotion = ChessMove.of(ChessPosition.of(7, 5), ChessPosition.of(8, 5), ChessPiece.PieceType.QUEEN);
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+
+        Assertions.assertEquals("\"e4\"", gson.toJson(e4));
+        Assertions.assertEquals("\"N\"", gson.toJson(knight));
+        Assertions.assertEquals("\"e7e8q\"", gson.toJson(promotion));
+        Assertions.assertEquals("\"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR KQkq - 0\"", gson.toJson(board));
+
+        Assertions.assertSame(e4, gson.fromJson("\"e4\"", ChessPosition.class));
+        Assertions.assertSame(knight, gson.fromJson("\"N\"", ChessPiece.class));
+        Assertions.assertSame(promotion, gson.fromJson("\"e7e8q\"", ChessMove.class));
+        Assertions.assertEquals(board, gson.fromJson(gson.toJson(board), ChessBoard.class));
+        Assertions.assertEquals(board, gson.fromJson(new Gson().toJson(board), ChessBoard.class));
+    }
+
+    @Test
+    @DisplayName("Rejects Bad Notation")
+    public void rejectsBadNotation() {
+        Assertions.assertThrows(JsonSyntaxException.class, () -> gson.fromJson("\"i9\"", ChessPosition.class));
+        Assertions.assertThrows(JsonSyntaxException.class, () -> gson.fromJson("\"X\"", ChessPiece.class));
+        Assertions.assertThrows(JsonSyntaxException.class, () -> gson.fromJson("\"e2e\"", ChessMove.class));
+        Assertions.assertThrows(JsonSyntaxException.class, () -> gson.fromJson("{\"fen\":\"8/8 w - -\"}", ChessGame.class));
+    }
+
+    @Test
+    @DisplayName("Move Round Trip")
+    public void moveRoundTrip() {
+        ChessMove promotion = ChessMove.of(ChessPosition.of(2, 3), ChessPosition.of(1, 3), ChessPiece.PieceType.ROOK);
+        ChessMove plain = ChessMove.of(ChessPosition.of(1, 2), ChessPosition.of(3, 3), null);
+        ChessMove offBoard = new ChessMove(new ChessPosition(0, 1), new ChessPosition(1, 1), null);
+
+        Assertions.assertSame(promotion, gson.fromJson(gson.toJson(promotion), ChessMove.class));
+        Assertions.assertSame(plain, gson.fromJson(gson.toJson(plain), ChessMove.class));
+        Assertions.assertSame(plain, gson.fromJson(new Gson().toJson(plain), ChessMove.class));
+        Assertions.assertEquals(offBoard, gson.fromJson(gson.toJson(offBoard), ChessMove.class));
+        Assertions.assertTrue(gson.toJson(offBoard).startsWith("{\"startPosition\":{\"row\":0"),
+                "Off-board moves have no notation and keep the object form");
+    }
+}
@@ -0,0 +1,74 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class FenTests {
+
+    @Test
+    @DisplayName("Start Position")
+    public void startPosition() {
+        Assertions.assertEquals(new ChessGame(), Fen.parse(Fen.START));
+        Assertions.assertEquals(Fen.START, Fen.toFen(new ChessGame()));
+    }
+
+    @Test
+    @DisplayName("Suite Positions Round Trip")
+    public void suiteRoundTrip() {
+        for (Perft.Position position : Perft.SUITE) {
+            ChessGame game = position.game();
+            Assertions.assertEquals(position.fen(), Fen.toFen(game));
+            Assertions.assertEquals(game.positionKey(), Fen.parse(Fen.toFen(game)).positionKey());
+        }
+    }
+
+    @Test
+    @DisplayName("State Fields Follow Moves")
+    public void stateFollowsMoves() throws InvalidMoveException {
+        ChessGame game = Fen.parse("4k2r/8/8/8/1p6/8/P7/R3K3 w Qk - 7 30");
+        game.makeMove(new ChessMove(new ChessPosition(2, 1), new ChessPosition(4, 1), null));
+        Assertions.assertEquals("4k2r/8/8/8/Pp6/8/8/R3K3 b Qk a3 0 30", Fen.toFen(game));
+
+        game.makeMove(new ChessMove(new ChessPosition(8, 8), new ChessPosition(7, 8), null));
+        Assertions.assertEquals("4k3/7r/8/8/Pp6/8/8/R3K3 w Q - 1 31", Fen.toFen(game));
+
+        game.unmakeMove();
+        game.unmakeMove();
+        Assertions.assertEquals("4k2r/8/8/8/1p6/8/P7/R3K3 w Qk - 7 30", Fen.toFen(game));
+    }
+
+    @Test
+    @DisplayName("Clocks Are Optional")
+    public void clocksOptional() {
+        ChessGame game = Fen.parse("8/8/8/8/8/8/8/K6k b -   -");
+        Assertions.assertEquals("8/8/8/8/8/8/8/K6k b - - 0 1", Fen.toFen(game));
+    }
+
+    @Test
+    @DisplayName("Uncapturable En Passant Square Is Dropped")
+    public void uncapturableEnPassant() {
+        ChessGame game = Fen.parse("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+        Assertions.assertEquals(-1, game.getBoard().getEnPassantSquare());
+    }
+
+    @Test
+    @DisplayName("Malformed FEN Is Rejected")
+    public void malformed() {
+        String[] bad = {
+                "",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQxq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e4 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 0",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - x 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1 extra",
+        };
+        for (String fen : bad) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> Fen.parse(fen), fen);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class GameCodecTests {
+
+    @Test
+    @DisplayName("Start Position Round Trip")
+    public void startRoundTrip() {
+        byte[] data = GameCodec.encode(new ChessGame());
+
+        Assertions.assertEquals(35, data.length);
+        Assertions.assertTrue(GameCodec.isEncoded(data));
+        ChessGame decoded = GameCodec.decode(data);
+        Assertions.assertEquals(new ChessGame(), decoded);
+        Assertions.assertEquals(Fen.START, Fen.toFen(decoded));
+    }
+
+    @Test
+    @DisplayName("Full State Round Trip")
+    public void stateRoundTrip() throws InvalidMoveException {
+        ChessGame game = Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w Kq - 12 40");
+        game.makeMove(new ChessMove(new ChessPosition(2, 1), new ChessPosition(4, 1), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 5), new ChessPosition(8, 6), null));
+        game.setGameOver(true);
+
+        ChessGame decoded = GameCodec.decode(GameCodec.encode(game));
+
+        Assertions.assertEquals(Fen.toFen(game), Fen.toFen(decoded));
+        Assertions.assertEquals(game.positionKey(), decoded.positionKey());
+        Assertions.assertArrayEquals(game.history(), decoded.history());
+        Assertions.assertTrue(decoded.isGameOver());
+    }
+
+    @Test
+    @DisplayName("Suite Positions Round Trip")
+    public void suiteRoundTrip() {
+        for (Perft.Position position : Perft.SUITE) {
+            ChessGame decoded = GameCodec.decode(GameCodec.encode(position.game()));
+            Assertions.assertEquals(position.fen(), Fen.toFen(decoded), position.name());
+        }
+    }
+
+    @Test
+    @DisplayName("Bad Data Is Rejected")
+    public void badData() {
+        byte[] json = ChessJson.gson().toJson(new ChessGame()).getBytes(StandardCharsets.UTF_8);
+        Assertions.assertFalse(GameCodec.isEncoded(json));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(json));
+
+        byte[] data = GameCodec.encode(new ChessGame());
+        byte[] truncated = Arrays.copyOf(data, data.length - 5);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(truncated));
+
+        data[2] = (byte) (GameCodec.VERSION + 1);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(data));
+    }
+}
@@ -0,0 +1,92 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class GameStatusTests {
+
+    @Test
+    @DisplayName("Start Position Is Ongoing")
+    public void startIsOngoing() {
+        ChessGame game = new ChessGame();
+
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getStatus());
+        Assertions.assertEquals(20, game.getLegalMoves().size());
+        Assertions.assertSame(game.getLegalMoves(), game.getLegalMoves(), "Legal moves should be memoized");
+    }
+
+    @Test
+    @DisplayName("Status Follows Moves")
+    public void statusFollowsMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, 2, 6, 3, 6);
+        play(game, 7, 5, 5, 5);
+        play(game, 2, 7, 4, 7);
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getStatus());
+
+        play(game, 8, 4, 4, 8);
+        Assertions.assertEquals(ChessGame.GameStatus.CHECKMATE, game.getStatus());
+        Assertions.assertTrue(game.getLegalMoves().isEmpty());
+        Assertions.assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+
+        game.unmakeMove();
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getStatus(), "Status should reset after unmake");
+    }
+
+    @Test
+    @DisplayName("Check, Stalemate And Draw")
+    public void terminalStatuses() {
+        ChessGame game = Fen.parse("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        Assertions.assertEquals(ChessGame.GameStatus.STALEMATE, game.getStatus());
+
+        game.getBoard().addPiece(new ChessPosition(7, 6), null);
+        game.getBoard().addPiece(new ChessPosition(1, 8), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        Assertions.assertEquals(ChessGame.GameStatus.CHECK, game.getStatus(),
+                "Changing the board directly should refresh the status");
+
+        game.getBoard().addPiece(new ChessPosition(1, 8), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW, game.getStatus());
+        Assertions.assertTrue(game.getStatus().isOver());
+    }
+
+    @Test
+    @DisplayName("Threefold Repetition Survives Reload")
+    public void threefoldRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getStatus(), "Second occurrence is not a draw");
+
+        ChessGame reloaded = ChessJson.gson().fromJson(ChessJson.gson().toJson(game), ChessGame.class);
+        shuffleKnights(reloaded);
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW, reloaded.getStatus());
+
+        reloaded.unmakeMove();
+        Assertions.assertNotEquals(ChessGame.GameStatus.DRAW, reloaded.getStatus());
+    }
+
+    @Test
+    @DisplayName("En Passant Square Only When Capturable")
+    public void enPassantSquareOnlyWhenCapturable() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, 2, 5, 4, 5);
+        Assertions.assertEquals(-1, game.getBoard().getEnPassantSquare(), "No black pawn can take on e3");
+
+        play(game, 7, 1, 6, 1);
+        play(game, 4, 5, 5, 5);
+        play(game, 7, 4, 5, 4);
+        Assertions.assertEquals(Bitboards.square(6, 4), game.getBoard().getEnPassantSquare());
+    }
+
+    private static void shuffleKnights(ChessGame game) throws InvalidMoveException {
+        play(game, 1, 7, 3, 6);
+        play(game, 8, 7, 6, 6);
+        play(game, 3, 6, 1, 7);
+        play(game, 6, 6, 8, 7);
+    }
+
+    private static void play(ChessGame game, int fromRow, int fromCol, int toRow, int toCol)
+            throws InvalidMoveException {
+        game.makeMove(new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null));
+    }
+}
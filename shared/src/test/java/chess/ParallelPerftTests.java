@@ -0,0 +1,40 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class ParallelPerftTests {
+
+    @Test
+    @DisplayName("Parallel Perft Matches Sequential")
+    public void matchesSequential() {
+        try (ParallelPerft perft = new ParallelPerft(4)) {
+            for (Perft.Position position : Perft.SUITE) {
+                int depth = Math.min(position.maxDepth(), 3);
+                Assertions.assertEquals(position.expected()[depth - 1], perft.perft(position.game(), depth),
+                        "Wrong parallel perft count for " + position.name());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Parallel Perft Without Table")
+    public void withoutTable() {
+        Perft.Position start = Perft.SUITE.get(0);
+        try (ParallelPerft perft = new ParallelPerft(3, 3, 0)) {
+            Assertions.assertEquals(start.expected()[3], perft.perft(start.game(), 4));
+        }
+    }
+
+    @Test
+    @DisplayName("Game Copy Is Independent")
+    public void copyIsIndependent() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        ChessGame copy = new ChessGame(game);
+        copy.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        Assertions.assertEquals(new ChessGame(), game, "Moving on a copy changed the original");
+        Assertions.assertNotEquals(game.positionKey(), copy.positionKey());
+    }
+}
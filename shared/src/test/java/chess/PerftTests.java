@@ -0,0 +1,53 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+public class PerftTests {
+
+    // keeps the suite fast; run Perft.main for the deeper counts
+    private static final long NODE_BUDGET = 250_000;
+
+    @Test
+    @DisplayName("Bundled Perft Positions")
+    public void bundledSuite() {
+        for (Perft.Position position : Perft.SUITE) {
+            for (int depth = 1; depth <= position.maxDepth(); depth++) {
+                long expected = position.expected()[depth - 1];
+                if (expected > NODE_BUDGET) {
+                    break;
+                }
+                Assertions.assertEquals(expected, Perft.perft(position.game(), depth),
+                        "Wrong perft count for " + position.name() + " at depth " + depth);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Divide Sums To Perft")
+    public void divideMatchesPerft() {
+        ChessGame game = Perft.SUITE.get(0).game();
+        Map<ChessMove, Long> divide = Perft.divide(game, 3);
+
+        Assertions.assertEquals(20, divide.size(), "Divide should list every root move");
+        Assertions.assertEquals(Perft.perft(game, 3),
+                divide.values().stream().mapToLong(Long::longValue).sum(),
+                "Divide counts should add up to the perft count");
+    }
+
+    @Test
+    @DisplayName("Perft Leaves Position Unchanged")
+    public void perftRestoresPosition() {
+        ChessGame game = Perft.SUITE.get(2).game();
+        ChessGame untouched = Perft.SUITE.get(2).game();
+        long key = game.positionKey();
+
+        Perft.perft(game, 3);
+
+        Assertions.assertEquals(key, game.positionKey(), "Position key changed after perft");
+        Assertions.assertEquals(untouched, game, "Game changed after perft");
+    }
+}